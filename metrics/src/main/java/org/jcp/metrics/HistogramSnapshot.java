@@ -0,0 +1,70 @@
+package org.jcp.metrics;
+
+/**
+ * An immutable copy of a {@link LatencyHistogram} state, used for percentile calculations
+ */
+public class HistogramSnapshot {
+
+    private final long[] counts;
+    private final long   count;
+    private final long   sum;
+    private final long   max;
+
+    HistogramSnapshot(final long[] counts, final long count, final long sum, final long max) {
+        this.counts = counts;
+        this.count = count;
+        this.sum = sum;
+        this.max = max;
+    }
+
+    /**
+     * Finds the value below which the given percentage of recorded values fall
+     *
+     * @param percentile in the range of {@code [0, 100]}
+     * @return the value, or zero if nothing has been recorded
+     */
+    public long getValueAtPercentile(final double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        final double bounded = Math.min(100.0, Math.max(0.0, percentile));
+        final long rank = Math.max(1, (long) Math.ceil(bounded / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(LatencyHistogram.highestValueOf(i), max);
+            }
+        }
+        return max;
+    }
+
+    public long getP50() {
+        return getValueAtPercentile(50.0);
+    }
+
+    public long getP99() {
+        return getValueAtPercentile(99.0);
+    }
+
+    public long getP999() {
+        return getValueAtPercentile(99.9);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return count == 0 ? 0.0 : (double) sum / count;
+    }
+
+    public String toString() {
+        return "{\"count\":" + count + ", \"p50\":" + getP50() + ", \"p99\":" + getP99() + ", \"p999\":" + getP999()
+                + ", \"max\":" + max + "}";
+    }
+}
@@ -0,0 +1,58 @@
+package org.jcp.metrics;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registers the metric beans within the platform {@link MBeanServer}
+ */
+public final class JmxSupport {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JmxSupport.class);
+
+    private JmxSupport() {
+    }
+
+    /**
+     * Registers the bean under the given name, replacing the already registered one if any
+     *
+     * @param bean the MBean or MXBean implementation
+     * @param name the object name, e.g. {@code org.jcp:type=Metrics,name=default}
+     * @return the registered {@link ObjectName}
+     */
+    public static ObjectName register(final Object bean, final String name) {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            final ObjectName objectName = new ObjectName(name);
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(bean, objectName);
+            return objectName;
+        } catch (final JMException e) {
+            throw new IllegalArgumentException("Failed to register the MBean " + name, e);
+        }
+    }
+
+    /**
+     * Removes the bean from the platform {@link MBeanServer}, does nothing if the bean is not registered
+     *
+     * @param objectName the name the bean was registered with
+     */
+    public static void unregister(final ObjectName objectName) {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        } catch (final JMException e) {
+            LOG.warn("Failed to unregister the MBean {}", objectName, e);
+        }
+    }
+}
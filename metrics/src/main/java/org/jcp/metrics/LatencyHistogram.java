@@ -0,0 +1,118 @@
+package org.jcp.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free, fixed-size latency histogram with a log-linear (HDR-style) bucket layout.
+ * <p>
+ * Every power of two range is split into {@value #SUB_BUCKET_HALF_COUNT} linear sub-buckets, so any recorded value is
+ * resolved with a relative error of at most ~1.5% over the whole positive {@code long} range. Recording is a single
+ * atomic increment of the corresponding bucket and never blocks, so the histogram can be shared by all the worker
+ * threads.
+ */
+public class LatencyHistogram {
+
+    /**
+     * Number of significant bits kept for each recorded value
+     */
+    private static final int SUB_BUCKET_BITS       = 7;
+    private static final int SUB_BUCKET_HALF_BITS  = SUB_BUCKET_BITS - 1;
+    private static final int SUB_BUCKET_HALF_COUNT = 1 << SUB_BUCKET_HALF_BITS;
+    private static final int BUCKET_COUNT          = (Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKET_HALF_COUNT + SUB_BUCKET_HALF_COUNT;
+
+    private final AtomicLongArray counts;
+    private final LongAdder       totalCount;
+    private final LongAdder       totalSum;
+    private final LongAccumulator max;
+
+    /**
+     * Creates an empty histogram
+     */
+    public LatencyHistogram() {
+        this.counts = new AtomicLongArray(BUCKET_COUNT);
+        this.totalCount = new LongAdder();
+        this.totalSum = new LongAdder();
+        this.max = new LongAccumulator(Math::max, 0);
+    }
+
+    /**
+     * Records a single value. Negative values (e.g. caused by a clock adjustment) are recorded as zero.
+     *
+     * @param value the value to be recorded, usually a duration in nanoseconds
+     */
+    public void record(final long value) {
+        final long normalized = value < 0 ? 0 : value;
+        counts.incrementAndGet(indexOf(normalized));
+        totalCount.increment();
+        totalSum.add(normalized);
+        max.accumulate(normalized);
+    }
+
+    /**
+     * Records the time elapsed since the given {@link System#nanoTime()} reading
+     *
+     * @param startNanos the start of the measured interval
+     */
+    public void recordSince(final long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Takes a point-in-time copy of the histogram. The copy is not atomic with regard to the concurrent recordings, i.e.
+     * a value recorded during the copy may or may not be part of it.
+     *
+     * @return the {@link HistogramSnapshot}
+     */
+    public HistogramSnapshot snapshot() {
+        final long[] copy = new long[BUCKET_COUNT];
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            copy[i] = counts.get(i);
+            count += copy[i];
+        }
+        return new HistogramSnapshot(copy, count, totalSum.sum(), max.get());
+    }
+
+    /**
+     * @return the number of recorded values
+     */
+    public long getCount() {
+        return totalCount.sum();
+    }
+
+    /**
+     * Calculates the bucket index for the value. Values below {@code 2 * SUB_BUCKET_HALF_COUNT} are stored exactly,
+     * larger values keep their {@link #SUB_BUCKET_BITS} most significant bits.
+     *
+     * @param value a non-negative value
+     * @return the bucket index
+     */
+    static int indexOf(final long value) {
+        final int shift = Math.max(0, Long.SIZE - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS);
+        return (shift << SUB_BUCKET_HALF_BITS) + (int) (value >>> shift);
+    }
+
+    /**
+     * The reverse of {@link #indexOf(long)}
+     *
+     * @param index bucket index
+     * @return the lowest value that falls into the bucket
+     */
+    static long lowestValueOf(final int index) {
+        final int shift = Math.max(0, (index >>> SUB_BUCKET_HALF_BITS) - 1);
+        return ((long) index - ((long) shift << SUB_BUCKET_HALF_BITS)) << shift;
+    }
+
+    /**
+     * The reverse of {@link #indexOf(long)}
+     *
+     * @param index bucket index
+     * @return the highest value that falls into the bucket
+     */
+    static long highestValueOf(final int index) {
+        final int shift = Math.max(0, (index >>> SUB_BUCKET_HALF_BITS) - 1);
+        return lowestValueOf(index) + (1L << shift) - 1;
+    }
+}
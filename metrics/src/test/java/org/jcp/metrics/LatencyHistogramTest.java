@@ -0,0 +1,53 @@
+package org.jcp.metrics;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBucketBounds() {
+        for (long value : new long[]{0, 1, 63, 64, 127, 128, 129, 1_000, 123_456_789, Long.MAX_VALUE}) {
+            final int index = LatencyHistogram.indexOf(value);
+            Assert.assertTrue(LatencyHistogram.lowestValueOf(index) <= value);
+            Assert.assertTrue(LatencyHistogram.highestValueOf(index) >= value);
+        }
+    }
+
+    @Test
+    public void testPercentiles() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 10_000; i++) {
+            histogram.record(i * 1_000L);
+        }
+
+        final HistogramSnapshot snapshot = histogram.snapshot();
+
+        Assert.assertEquals(10_000, snapshot.getCount());
+        Assert.assertEquals(10_000_000, snapshot.getMax());
+        Assert.assertEquals(5_000_000, snapshot.getP50(), 5_000_000 * 0.02);
+        Assert.assertEquals(9_900_000, snapshot.getP99(), 9_900_000 * 0.02);
+        Assert.assertEquals(9_990_000, snapshot.getP999(), 9_990_000 * 0.02);
+    }
+
+    @Test
+    public void testConcurrentRecording() throws Exception {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int t = 0; t < 4; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    histogram.record(i);
+                }
+            });
+        }
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        Assert.assertEquals(400_000, histogram.snapshot().getCount());
+    }
+}
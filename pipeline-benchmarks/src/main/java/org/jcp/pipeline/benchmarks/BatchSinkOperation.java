@@ -0,0 +1,31 @@
+package org.jcp.pipeline.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.jcp.pipeline.base.BatchOperation;
+import org.jcp.pipeline.base.Operation;
+import org.jcp.pipeline.base.Pipeline;
+
+/**
+ * A batching sink similar to the join operation of the pipeline tests, counts the committed items
+ */
+public class BatchSinkOperation extends BatchOperation<BenchmarkItem> {
+
+    private final LongAdder committed = new LongAdder();
+
+    public BatchSinkOperation(final Pipeline<BenchmarkItem> pipeline,
+                              final Operation<BenchmarkItem> next,
+                              final int batchSize) {
+        super(pipeline, next, batchSize);
+    }
+
+    @Override
+    protected void doPerformBatch(final List<BenchmarkItem> batch) {
+        committed.add(batch.size());
+    }
+
+    long getCommitted() {
+        return committed.sum();
+    }
+}
@@ -0,0 +1,71 @@
+package org.jcp.pipeline.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The object passed through the benchmarked pipelines. The items are allocated upfront and reused, so the allocation
+ * reported by the benchmarks is the one of the pipeline itself.
+ */
+public class BenchmarkItem {
+
+    private final long id;
+
+    private long             updateCount;
+    private volatile boolean done;
+    private volatile Thread  waiter;
+
+    public BenchmarkItem(final long id) {
+        this.id = id;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    void update() {
+        updateCount++;
+    }
+
+    long getUpdateCount() {
+        return updateCount;
+    }
+
+    /**
+     * Prepares the item for the next round trip
+     */
+    void reset() {
+        done = false;
+        waiter = Thread.currentThread();
+    }
+
+    /**
+     * Signals the end of the flow to the thread that has started it
+     */
+    void complete() {
+        done = true;
+        LockSupport.unpark(waiter);
+    }
+
+    /**
+     * Waits for the end of the flow started after {@link #reset()}
+     *
+     * @param timeout maximum time to wait
+     * @param unit    unit of the timeout
+     */
+    void await(final long timeout, final TimeUnit unit) {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!done) {
+            final long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                throw new IllegalStateException("The flow of the item " + id + " has not completed in time");
+            }
+            LockSupport.parkNanos(this, remaining);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "{\"id\":" + id + ", \"updateCount\":" + updateCount + "}";
+    }
+}
@@ -0,0 +1,39 @@
+package org.jcp.pipeline.benchmarks;
+
+import org.jcp.pipeline.base.Operation;
+import org.jcp.pipeline.base.Pipeline;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * An operation burning a configurable amount of CPU per item, see {@link Blackhole#consumeCPU(long)}
+ */
+public class CostOperation extends Operation<BenchmarkItem> {
+
+    private final long tokens;
+
+    public CostOperation(final Pipeline<BenchmarkItem> pipeline, final Operation<BenchmarkItem> next, final long tokens) {
+        super(pipeline, next);
+        this.tokens = tokens;
+    }
+
+    /**
+     * The work of the operation, called directly by the baseline benchmarks
+     *
+     * @param value the item
+     */
+    public void work(final BenchmarkItem value) {
+        if (tokens > 0) {
+            Blackhole.consumeCPU(tokens);
+        }
+        value.update();
+    }
+
+    @Override
+    protected void doPerform(final BenchmarkItem value) {
+        work(value);
+    }
+
+    @Override
+    public void cleanup() {
+    }
+}
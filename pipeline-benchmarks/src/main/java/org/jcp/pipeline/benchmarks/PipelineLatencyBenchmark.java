@@ -0,0 +1,80 @@
+package org.jcp.pipeline.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The time from the start of a flow till it reaches the end of the chain, sampled per item, so the report contains
+ * the percentiles up to p99.99. Every benchmark thread has a single flow in progress, run with {@code -t} for the
+ * latency under concurrent load. The items waiting in the batch sink do not delay the end of their flows, so the
+ * batch commit is not included.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PipelineLatencyBenchmark {
+
+    private static final AtomicLong IDS = new AtomicLong();
+
+    /**
+     * The item of a benchmark thread, reused by every round trip
+     */
+    @State(Scope.Thread)
+    public static class Item {
+        private BenchmarkItem item;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            item = new BenchmarkItem(IDS.getAndIncrement());
+        }
+    }
+
+    /**
+     * Starts a flow in the thread pool and waits for its end
+     */
+    @Benchmark
+    public void roundTrip(final PipelineState.Pooled state, final Item item) {
+        measureRoundTrip(state, item);
+    }
+
+    /**
+     * Performs a flow in the starting thread
+     */
+    @Benchmark
+    public void roundTripInCaller(final PipelineState.Caller state, final Item item) {
+        measureRoundTrip(state, item);
+    }
+
+    /**
+     * The operations called directly, the baseline of the round trip
+     */
+    @Benchmark
+    public void direct(final PipelineState.Caller state, final Item item) {
+        item.item.reset();
+        for (final CostOperation operation : state.chain) {
+            operation.work(item.item);
+        }
+        item.item.complete();
+        item.item.await(1, TimeUnit.MINUTES);
+    }
+
+    private static void measureRoundTrip(final PipelineState state, final Item item) {
+        item.item.reset();
+        state.pipeline.start(item.item);
+        item.item.await(1, TimeUnit.MINUTES);
+    }
+}
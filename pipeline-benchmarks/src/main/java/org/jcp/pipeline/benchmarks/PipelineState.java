@@ -0,0 +1,154 @@
+package org.jcp.pipeline.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.jcp.pipeline.base.Operation;
+import org.jcp.pipeline.base.Pipeline;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * The benchmarked pipeline: a chain of {@link CostOperation}s, optionally followed by a {@link BatchSinkOperation},
+ * ending with a {@link SinkOperation}. Shared by all the benchmark threads and built once per trial. The executor
+ * running the flows is chosen by the subclass, so the thread pool parameters are only crossed with the executors that
+ * use them.
+ */
+@State(Scope.Benchmark)
+public abstract class PipelineState {
+
+    /**
+     * The thread pools running the flows
+     */
+    public enum ExecutorType {
+        /**
+         * {@link Executors#newFixedThreadPool(int)}
+         */
+        FIXED,
+        /**
+         * {@link ForkJoinPool} in the async mode
+         */
+        FORK_JOIN
+    }
+
+    /**
+     * Runs the flows in a thread pool
+     */
+    @State(Scope.Benchmark)
+    public static class Pooled extends PipelineState {
+
+        @Param({"FIXED", "FORK_JOIN"})
+        public ExecutorType executor;
+
+        @Param({"1", "4", "16"})
+        public int threads;
+
+        @Override
+        ExecutorService createExecutor() {
+            return executor == ExecutorType.FIXED
+                    ? Executors.newFixedThreadPool(threads)
+                    : new ForkJoinPool(threads, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+        }
+    }
+
+    /**
+     * Runs the flows in the starting thread, isolates the overhead of the pipeline itself
+     */
+    @State(Scope.Benchmark)
+    public static class Caller extends PipelineState {
+
+        @Override
+        ExecutorService createExecutor() {
+            return null;
+        }
+    }
+
+    /**
+     * The sink of the chain
+     */
+    public enum SinkType {
+        NONE,
+        /**
+         * A {@link BatchSinkOperation} committing every {@link #BATCH_SIZE} items
+         */
+        BATCH
+    }
+
+    static final int BATCH_SIZE = 64;
+
+    @Param({"1", "2", "4", "8", "16"})
+    public int operations;
+
+    /**
+     * The CPU cost of every operation, in {@link org.openjdk.jmh.infra.Blackhole#consumeCPU(long)} tokens
+     */
+    @Param({"0", "100", "1000"})
+    public long tokens;
+
+    @Param({"NONE", "BATCH"})
+    public SinkType sink;
+
+    Pipeline<BenchmarkItem> pipeline;
+    List<CostOperation>     chain;
+    BatchSinkOperation      batchSink;
+
+    private ExecutorService executorService;
+
+    /**
+     * @return the thread pool running the flows, {@code null} to run them in the starting thread
+     */
+    abstract ExecutorService createExecutor();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        executorService = createExecutor();
+        final Executor flowExecutor = executorService != null ? executorService : Runnable::run;
+        pipeline = new Pipeline<>(flowExecutor,
+                (e, operation, parameter) -> {
+                    throw e;
+                }, 60);
+
+        Operation<BenchmarkItem> next = new SinkOperation(pipeline);
+        if (sink == SinkType.BATCH) {
+            batchSink = new BatchSinkOperation(pipeline, next, BATCH_SIZE);
+            next = batchSink;
+        }
+        chain = new ArrayList<>();
+        for (int i = 0; i < operations; i++) {
+            final CostOperation operation = new CostOperation(pipeline, next, tokens);
+            chain.add(0, operation);
+            next = operation;
+        }
+        pipeline.setEntryOperation(next);
+        pipeline.compile();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pipeline.shutdown();
+        if (executorService != null) {
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * Waits for the started flows and commits the incomplete batch, so every invocation processes its items entirely
+     */
+    void awaitCompletion() {
+        if (!pipeline.awaitQuiescence(1, TimeUnit.MINUTES)) {
+            throw new IllegalStateException("The pipeline has not become quiescent");
+        }
+        if (batchSink != null) {
+            batchSink.flush();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package org.jcp.pipeline.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Items per second passed through the pipeline, every invocation processes {@link #ITEMS} items and waits for them.
+ * The {@link #direct(PipelineState.Caller, Items, Blackhole)} baseline calls the same operations in a loop, the
+ * per-item overhead of the pipeline is {@code 1 / start - 1 / direct}. Run with {@code -prof gc} for the allocation per item
+ * ({@code gc.alloc.rate.norm}), the items themselves are allocated upfront.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PipelineThroughputBenchmark {
+
+    static final int ITEMS = 1024;
+
+    /**
+     * The items of a benchmark thread
+     */
+    @State(Scope.Thread)
+    public static class Items {
+        private List<BenchmarkItem> items;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            items = new ArrayList<>(ITEMS);
+            for (int i = 0; i < ITEMS; i++) {
+                items.add(new BenchmarkItem(i));
+            }
+        }
+    }
+
+    /**
+     * The operations called one after another without the pipeline, batched like by the batch sink
+     */
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public void direct(final PipelineState.Caller state, final Items items, final Blackhole blackhole) {
+        final List<BenchmarkItem> batch = new ArrayList<>(PipelineState.BATCH_SIZE);
+        for (final BenchmarkItem item : items.items) {
+            for (final CostOperation operation : state.chain) {
+                operation.work(item);
+            }
+            if (state.batchSink != null) {
+                batch.add(item);
+                if (batch.size() == PipelineState.BATCH_SIZE) {
+                    blackhole.consume(batch.size());
+                    batch.clear();
+                }
+            }
+            item.complete();
+        }
+        blackhole.consume(batch.size());
+    }
+
+    /**
+     * A flow per item, every flow is an executor task
+     */
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public void start(final PipelineState.Pooled state, final Items items) {
+        startEach(state, items);
+    }
+
+    /**
+     * A flow per item, performed in the starting thread
+     */
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public void startInCaller(final PipelineState.Caller state, final Items items) {
+        startEach(state, items);
+    }
+
+    /**
+     * The items are started in chunks, see {@link org.jcp.pipeline.base.Pipeline#startAll(java.util.Collection)}
+     */
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public void startAll(final PipelineState.Pooled state, final Items items) {
+        startChunked(state, items);
+    }
+
+    /**
+     * The items are started in chunks, performed in the starting thread
+     */
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public void startAllInCaller(final PipelineState.Caller state, final Items items) {
+        startChunked(state, items);
+    }
+
+    private static void startEach(final PipelineState state, final Items items) {
+        for (final BenchmarkItem item : items.items) {
+            state.pipeline.start(item);
+        }
+        state.awaitCompletion();
+    }
+
+    private static void startChunked(final PipelineState state, final Items items) {
+        state.pipeline.startAll(items.items);
+        state.awaitCompletion();
+    }
+}
@@ -0,0 +1,23 @@
+package org.jcp.pipeline.benchmarks;
+
+import org.jcp.pipeline.base.Operation;
+import org.jcp.pipeline.base.Pipeline;
+
+/**
+ * The last operation of the benchmarked pipelines, signals the end of the flow to the thread waiting for the item
+ */
+public class SinkOperation extends Operation<BenchmarkItem> {
+
+    public SinkOperation(final Pipeline<BenchmarkItem> pipeline) {
+        super(pipeline, null);
+    }
+
+    @Override
+    protected void doPerform(final BenchmarkItem value) {
+        value.complete();
+    }
+
+    @Override
+    public void cleanup() {
+    }
+}
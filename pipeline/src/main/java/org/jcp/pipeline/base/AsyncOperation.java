@@ -0,0 +1,97 @@
+package org.jcp.pipeline.base;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * An operation that does not block the flow thread, for example a call of a remote service with a non-blocking client.
+ * The operation starts the processing and returns a {@link CompletionStage}, the flow thread is released right away
+ * and the flow continues with the next operation once the stage completes. The continuation is scheduled with the
+ * {@link java.util.concurrent.Executor} of the {@link Pipeline}, so the threads completing the stages (for example the
+ * I/O threads of a client) do not perform the downstream operations.
+ * <p>
+ * The flow is counted as in progress until the stage completes, the maximum number of flows of the {@link Pipeline}
+ * limits the number of the outstanding calls as well. A stage completed exceptionally is handled as a failure of the
+ * operation by the {@link org.jcp.pipeline.base.exception.PipelineErrorHandler}. A stage that is complete already when
+ * returned is continued in the current thread.
+ *
+ * @param <T> the supported type of the object that will be processed.
+ */
+public abstract class AsyncOperation<T> extends Operation<T> {
+
+    /**
+     * Default constructor, accepts the main pipeline reference and the next operation to be executed.
+     *
+     * @param pipeline               reference to the main pipeline process
+     * @param nextOperationReference reference to the operation that has to be performed right after the current
+     *                               operation is completed
+     */
+    protected AsyncOperation(final Pipeline<T> pipeline, final Operation<T> nextOperationReference) {
+        super(pipeline, nextOperationReference);
+    }
+
+    /**
+     * Starts the processing of the object, must not block
+     *
+     * @param value the object to be handled
+     * @return the stage completed once the object is processed
+     */
+    protected abstract CompletionStage<Void> doPerformAsync(T value);
+
+    /**
+     * Starts the processing of the object
+     *
+     * @param value the object to be processed
+     * @return the completion of the processing
+     */
+    @SuppressWarnings("unchecked")
+    CompletableFuture<Void> performAsync(final T value) {
+        final CompletionStage<Void> stage = doPerformAsync(value);
+        if (stage == null) {
+            throw new IllegalStateException("No completion stage has been returned by " + this);
+        }
+        if (stage instanceof CompletableFuture) {
+            return (CompletableFuture<Void>) stage;
+        }
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        stage.whenComplete((ignored, failure) -> {
+            if (failure != null) {
+                future.completeExceptionally(failure);
+            } else {
+                future.complete(null);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Performs the operation synchronously, blocks till the stage completes. Not used by the {@link Pipeline} flows.
+     *
+     * @param value the object to be handled
+     */
+    @Override
+    protected final void doPerform(final T value) {
+        awaitCompletion(performAsync(value));
+    }
+
+    /**
+     * Waits for the completion, the failure of the stage is rethrown as is
+     *
+     * @param completion the completion of the processing
+     */
+    static void awaitCompletion(final CompletableFuture<Void> completion) {
+        try {
+            completion.join();
+        } catch (CompletionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package org.jcp.pipeline.base;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.jcp.pipeline.base.metrics.OperationMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Moves the worker threads between the {@link Stage}s of a {@link Pipeline} towards the current bottleneck, within a
+ * global thread budget. Every sample the utilization of each stage is calculated from the processing time of its
+ * operations (see {@link OperationMetrics#getBusyTime()}): the processing time spent since the previous sample divided
+ * by the elapsed time and the number of the workers. The bottleneck is the most utilized stage with a backlog in its
+ * queue. A worker is added to it while the budget allows, otherwise a worker is taken from the least utilized stage
+ * that stays well below the saturation without it.
+ * <p>
+ * To avoid flapping the bottleneck has to be confirmed by consecutive samples, the saturation and the donor thresholds
+ * leave a gap between them and the controller pauses for a few samples after every move. The partitioned stages of
+ * the {@link KeyedOperation}s are not scaled. The utilization of a stage performing an {@link AsyncOperation} is
+ * overestimated, the outstanding calls count as processing time.
+ *
+ * @param <T> the supported type of the object that will be processed.
+ */
+public class AutoScaler<T> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AutoScaler.class);
+
+    /**
+     * A stage utilized at least as much and having a backlog is a bottleneck
+     */
+    private static final double SATURATED = 0.85;
+
+    /**
+     * A worker is only taken from a stage that is utilized at most as much with the remaining workers
+     */
+    private static final double DONOR_LIMIT = 0.7;
+
+    private static final int CONFIRMATIONS = 2;
+    private static final int COOLDOWN      = 2;
+
+    private final int                    threadBudget;
+    private final long                   intervalNanos;
+    private final List<StageSample<T>>   stages;
+
+    private ScheduledExecutorService timer;
+    private long                     lastSampleNanos;
+    private StageSample<T>           candidate;
+    private int                      confirmed;
+    private int                      cooldown;
+
+    /**
+     * Creates a controller, the pipeline is compiled if it has not been yet
+     *
+     * @param pipeline     the pipeline with the stages to be scaled
+     * @param threadBudget maximum number of the worker threads of all the scaled stages
+     * @param interval     the sampling interval
+     * @param unit         unit of the interval
+     */
+    public AutoScaler(final Pipeline<T> pipeline, final int threadBudget, final long interval, final TimeUnit unit) {
+        assert pipeline != null;
+        if (threadBudget < 1 || interval <= 0) {
+            throw new IllegalArgumentException("Invalid thread budget " + threadBudget + " or interval " + interval);
+        }
+        pipeline.compile();
+        this.threadBudget = threadBudget;
+        this.intervalNanos = unit.toNanos(interval);
+        this.stages = new ArrayList<>();
+        for (final Stage<T> stage : pipeline.getStages()) {
+            if (!stage.isPartitioned()) {
+                stages.add(new StageSample<>(stage, pipeline.getStageMetrics(stage.getOperation())));
+            }
+        }
+        if (stages.isEmpty()) {
+            throw new IllegalStateException("The pipeline has no stages to be scaled");
+        }
+        this.lastSampleNanos = System.nanoTime();
+    }
+
+    /**
+     * Starts sampling in a dedicated daemon thread
+     */
+    public synchronized void start() {
+        if (timer != null) {
+            return;
+        }
+        timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread thread = new Thread(r, "pipeline-autoscaler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.scheduleWithFixedDelay(() -> {
+            try {
+                adjust();
+            } catch (RuntimeException e) {
+                LOG.warn("Stage scaling has failed", e);
+            }
+        }, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Stops sampling, the stages keep their current number of workers
+     */
+    public synchronized void stop() {
+        if (timer != null) {
+            timer.shutdownNow();
+            timer = null;
+        }
+    }
+
+    /**
+     * Takes a sample and moves a worker if required, called by the sampling thread
+     */
+    public synchronized void adjust() {
+        final long now = System.nanoTime();
+        final long elapsed = now - lastSampleNanos;
+        if (elapsed <= 0) {
+            return;
+        }
+        lastSampleNanos = now;
+
+        StageSample<T> bottleneck = null;
+        int total = 0;
+        for (final StageSample<T> sample : stages) {
+            if (sample.stage.isStopped()) {
+                return;
+            }
+            sample.update(elapsed);
+            total += sample.workers;
+            if (sample.backlog > 0 && sample.utilization >= SATURATED
+                    && (bottleneck == null || sample.utilization > bottleneck.utilization)) {
+                bottleneck = sample;
+            }
+        }
+
+        if (cooldown > 0) {
+            cooldown--;
+            return;
+        }
+        if (bottleneck == null) {
+            candidate = null;
+            confirmed = 0;
+            return;
+        }
+        confirmed = bottleneck == candidate ? confirmed + 1 : 1;
+        candidate = bottleneck;
+        if (confirmed < CONFIRMATIONS) {
+            return;
+        }
+
+        if (total < threadBudget) {
+            bottleneck.stage.startWorkers(1);
+            LOG.info("Added a worker to the stage of {}, utilization {}", bottleneck.stage.getOperation(), bottleneck.utilization);
+        } else {
+            final StageSample<T> donor = findDonor(bottleneck);
+            if (donor == null) {
+                return;
+            }
+            donor.stage.retireWorkers(1);
+            bottleneck.stage.startWorkers(1);
+            LOG.info("Moved a worker from the stage of {} (utilization {}) to the stage of {} (utilization {})",
+                    donor.stage.getOperation(), donor.utilization, bottleneck.stage.getOperation(), bottleneck.utilization);
+        }
+        confirmed = 0;
+        cooldown = COOLDOWN;
+    }
+
+    /**
+     * @param operation a staged operation
+     * @return number of the stage workers
+     */
+    public int getWorkers(final Operation<T> operation) {
+        if (operation.stage == null) {
+            throw new IllegalArgumentException("The operation is not staged: " + operation);
+        }
+        return operation.stage.getWorkerCount();
+    }
+
+    /**
+     * @return the least utilized stage that stays below the donor limit with a worker less, {@code null} if none
+     */
+    private StageSample<T> findDonor(final StageSample<T> bottleneck) {
+        StageSample<T> donor = null;
+        double donorUtilization = Double.MAX_VALUE;
+        for (final StageSample<T> sample : stages) {
+            if (sample == bottleneck || sample.workers < 2) {
+                continue;
+            }
+            final double remaining = sample.utilization * sample.workers / (sample.workers - 1);
+            if (remaining <= DONOR_LIMIT && remaining < donorUtilization) {
+                donor = sample;
+                donorUtilization = remaining;
+            }
+        }
+        return donor;
+    }
+
+    /**
+     * The latest sample of a stage
+     */
+    private static class StageSample<T> {
+        private final Stage<T>               stage;
+        private final List<OperationMetrics> metrics;
+
+        private long   busyTime;
+        private int    workers;
+        private int    backlog;
+        private double utilization;
+
+        private StageSample(final Stage<T> stage, final List<OperationMetrics> metrics) {
+            this.stage = stage;
+            this.metrics = metrics;
+            this.busyTime = busyTime();
+        }
+
+        private void update(final long elapsed) {
+            final long current = busyTime();
+            workers = stage.getWorkerCount();
+            backlog = stage.getQueueSize();
+            utilization = (double) (current - busyTime) / elapsed / Math.max(1, workers);
+            busyTime = current;
+        }
+
+        private long busyTime() {
+            long total = 0;
+            for (final OperationMetrics operation : metrics) {
+                total += operation.getBusyTime();
+            }
+            return total;
+        }
+    }
+}
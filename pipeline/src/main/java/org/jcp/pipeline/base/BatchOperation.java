@@ -0,0 +1,276 @@
+package org.jcp.pipeline.base;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An operation that collects the objects and processes them in batches, for example to persist them in a database
+ * with a single statement. A batch is flushed once it reaches the batch size, or once its oldest object has been
+ * waiting for the linger time, and the remaining objects are flushed when the pipeline shuts down.
+ * <p>
+ * The objects are collected in a number of lock-free buffers, each one is used by a subset of the threads (similar to
+ * the cells of a {@link java.util.concurrent.atomic.LongAdder}), so the flows do not contend for a single lock. A batch
+ * reaching the batch size is processed by the flow thread that has filled it, the linger flushes are performed by a
+ * dedicated timer thread, started when the pipeline is compiled and stopped when it shuts down. Note that the object
+ * is passed to the next operation right after it is buffered, so a batching operation is normally the last one of the
+ * chain. If a batch fails, the exception is passed to the
+ * {@link org.jcp.pipeline.base.exception.PipelineErrorHandler} once for every object of the batch.
+ *
+ * @param <T> the supported type of the object that will be processed.
+ */
+public abstract class BatchOperation<T> extends Operation<T> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BatchOperation.class);
+
+    private final Pipeline<T> pipeline;
+    private final int         batchSize;
+    private final long        lingerNanos;
+    private final Buffer<T>[] buffers;
+    private final int         bufferMask;
+
+    private volatile ScheduledExecutorService lingerTimer;
+
+    /**
+     * Creates an operation that flushes the batches by size only
+     *
+     * @param pipeline               reference to the main pipeline process
+     * @param nextOperationReference reference to the operation that has to be performed right after the current
+     *                               operation is executed
+     * @param batchSize              maximum number of objects in a batch
+     */
+    protected BatchOperation(final Pipeline<T> pipeline, final Operation<T> nextOperationReference, final int batchSize) {
+        this(pipeline, nextOperationReference, batchSize, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates an operation
+     *
+     * @param pipeline               reference to the main pipeline process
+     * @param nextOperationReference reference to the operation that has to be performed right after the current
+     *                               operation is executed
+     * @param batchSize              maximum number of objects in a batch
+     * @param linger                 maximum time an object waits for its batch to be flushed, 0 disables the timer
+     * @param unit                   unit of the linger time
+     */
+    @SuppressWarnings("unchecked")
+    protected BatchOperation(final Pipeline<T> pipeline,
+                             final Operation<T> nextOperationReference,
+                             final int batchSize,
+                             final long linger,
+                             final TimeUnit unit) {
+        super(pipeline, nextOperationReference);
+        if (batchSize < 1 || linger < 0) {
+            throw new IllegalArgumentException("Invalid batch size " + batchSize + " or linger time " + linger);
+        }
+        this.pipeline = pipeline;
+        this.batchSize = batchSize;
+        this.lingerNanos = unit.toNanos(linger);
+
+        final int size = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() - 1) << 1);
+        this.buffers = new Buffer[size];
+        this.bufferMask = size - 1;
+        for (int i = 0; i < size; i++) {
+            buffers[i] = new Buffer<>();
+        }
+    }
+
+    /**
+     * Processes a batch of objects
+     *
+     * @param batch the objects, at least one and at most the batch size
+     */
+    protected abstract void doPerformBatch(List<T> batch);
+
+    /**
+     * Buffers the object, processes the batch if the buffer is full. The flow that has filled the batch continues
+     * after a failed batch unless the error handler rethrows the exception.
+     *
+     * @param value the object to be handled
+     */
+    @Override
+    protected final void doPerform(final T value) {
+        final Buffer<T> buffer = buffers[(int) Thread.currentThread().getId() & bufferMask];
+        buffer.add(value);
+        if (buffer.size() >= batchSize) {
+            final List<T> batch = buffer.drain(batchSize, batchSize);
+            if (!batch.isEmpty()) {
+                performBatch(batch);
+            }
+        }
+    }
+
+    /**
+     * Flushes all the buffered objects. The subclasses overriding the method have to call it.
+     */
+    @Override
+    public void cleanup() {
+        flush();
+    }
+
+    /**
+     * Processes all the buffered objects in the current thread
+     */
+    public void flush() {
+        for (final Buffer<T> buffer : buffers) {
+            flush(buffer);
+        }
+    }
+
+    /**
+     * Starts the linger timer if there is a linger time, called by the {@link Pipeline} once it is compiled
+     */
+    void startTimer() {
+        if (lingerNanos > 0 && lingerTimer == null) {
+            final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+                final Thread thread = new Thread(r, "pipeline-batch-" + getClass().getSimpleName());
+                thread.setDaemon(true);
+                return thread;
+            });
+            final long period = Math.max(TimeUnit.MILLISECONDS.toNanos(1), lingerNanos / 2);
+            timer.scheduleAtFixedRate(this::flushExpired, period, period, TimeUnit.NANOSECONDS);
+            lingerTimer = timer;
+        }
+    }
+
+    /**
+     * Stops the linger timer and flushes the remaining objects, called by the {@link Pipeline} on shutdown. The objects
+     * are flushed even if the timer has not stopped in time or the thread has been interrupted, the buffers can be
+     * drained concurrently.
+     *
+     * @param timeoutNanos the maximum time to wait for the timer to stop
+     */
+    void drain(final long timeoutNanos) {
+        final ScheduledExecutorService timer = lingerTimer;
+        if (timer != null) {
+            timer.shutdown();
+            try {
+                timer.awaitTermination(Math.max(0, timeoutNanos), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+    }
+
+    /**
+     * @return number of the buffered objects
+     */
+    public int getBuffered() {
+        int buffered = 0;
+        for (final Buffer<T> buffer : buffers) {
+            buffered += Math.max(0, buffer.size());
+        }
+        return buffered;
+    }
+
+    private void flushExpired() {
+        final long now = System.nanoTime();
+        for (final Buffer<T> buffer : buffers) {
+            if (buffer.size() > 0 && now - buffer.oldest >= lingerNanos) {
+                try {
+                    flush(buffer);
+                } catch (RuntimeException e) {
+                    // rethrown by the error handler, the timer keeps running
+                    LOG.warn("Linger flush of {} has failed", this, e);
+                }
+            }
+        }
+    }
+
+    private void flush(final Buffer<T> buffer) {
+        List<T> batch = buffer.drain(1, batchSize);
+        while (!batch.isEmpty()) {
+            performBatch(batch);
+            batch = buffer.drain(1, batchSize);
+        }
+    }
+
+    /**
+     * Processes a batch, a failure is reported for every object of the batch. The first exception rethrown by the error
+     * handler is rethrown after all the objects have been reported.
+     */
+    private void performBatch(final List<T> batch) {
+        try {
+            doPerformBatch(batch);
+        } catch (RuntimeException e) {
+            RuntimeException failure = null;
+            for (final T value : batch) {
+                try {
+                    pipeline.handleError(e, this, value);
+                } catch (RuntimeException rethrown) {
+                    if (failure == null) {
+                        failure = rethrown;
+                    }
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * A lock-free buffer, the objects can be added and drained by any number of threads concurrently
+     */
+    private static class Buffer<T> {
+        private final Queue<T>      queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size  = new AtomicInteger();
+
+        /**
+         * {@link System#nanoTime()} of the first object added to the empty buffer, approximate
+         */
+        private volatile long oldest;
+
+        void add(final T value) {
+            queue.offer(value);
+            if (size.incrementAndGet() == 1) {
+                oldest = System.nanoTime();
+            }
+        }
+
+        /**
+         * The size is updated after the queue, so it may be off by the number of concurrent calls for a moment
+         */
+        int size() {
+            return size.get();
+        }
+
+        /**
+         * Reserves the objects by decrementing the size before polling them, so the concurrent drains never split a
+         * full batch. The size never exceeds the queue length, hence every reserved object is there to be polled.
+         *
+         * @param min the minimum number of objects to drain, otherwise nothing is drained
+         * @param max the maximum number of objects to drain
+         */
+        List<T> drain(final int min, final int max) {
+            int current;
+            int count;
+            do {
+                current = size.get();
+                if (current < min) {
+                    return Collections.emptyList();
+                }
+                count = Math.min(current, max);
+            } while (!size.compareAndSet(current, current - count));
+
+            final List<T> batch = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                batch.add(queue.poll());
+            }
+            if (current > count) {
+                oldest = System.nanoTime();
+            }
+            return batch;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package org.jcp.pipeline.base;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Builds a directed acyclic operation graph on top of the operation chains. An operation can fan out to a number of
+ * branches that are performed concurrently for the same object, the branches fan in at a join operation which is
+ * performed once all the branches have completed. So the latency of an object is defined by the longest branch instead
+ * of the sum of them.
+ * <p>
+ * A branch is an ordinary operation chain that ends with the join operation as the next operation reference, the
+ * operation the branches start from has no next operation reference. Example:
+ * <pre>
+ * Operation&lt;T&gt; store = new Store(pipeline, null);
+ * Operation&lt;T&gt; enrichA = new EnrichA(pipeline, store);
+ * Operation&lt;T&gt; enrichB = new EnrichB(pipeline, store);
+ * Operation&lt;T&gt; parse = new Parse(pipeline, null);
+ *
+ * new DagBuilder&lt;&gt;(pipeline).entry(parse).fork(parse, store, enrichA, enrichB).build();
+ * </pre>
+ * If a branch fails, the join operation is not performed for the object. Forks can be nested, a branch may contain
+ * another fork as long as it is joined within the branch.
+ *
+ * @param <T> the supported type of the object that will be processed.
+ */
+public class DagBuilder<T> {
+
+    private final Pipeline<T>        pipeline;
+    private final List<Operation<T>> sources;
+
+    private Operation<T> entry;
+
+    /**
+     * @param pipeline the pipeline the operations belong to
+     */
+    public DagBuilder(final Pipeline<T> pipeline) {
+        assert pipeline != null;
+        this.pipeline = pipeline;
+        this.sources = new ArrayList<>();
+    }
+
+    /**
+     * @param operation the operation every flow starts with
+     * @return this builder
+     */
+    public DagBuilder<T> entry(final Operation<T> operation) {
+        assert operation != null;
+        this.entry = operation;
+        return this;
+    }
+
+    /**
+     * Passes the objects processed by the source operation to all the branches concurrently
+     *
+     * @param source   the operation to fan out from, must not have a next operation reference
+     * @param join     the operation all the branches end with
+     * @param branches the first operations of the branches
+     * @return this builder
+     */
+    @SafeVarargs
+    public final DagBuilder<T> fork(final Operation<T> source, final Operation<T> join, final Operation<T>... branches) {
+        assert source != null;
+        assert join != null;
+        pipeline.checkNotCompiled();
+        if (branches.length < 2) {
+            throw new IllegalArgumentException("A fork requires at least two branches");
+        }
+        if (source.getNextOperation() != null) {
+            throw new IllegalArgumentException("The fork source must not have a next operation: " + source);
+        }
+        if (source.fork != null) {
+            throw new IllegalArgumentException("The operation already forks: " + source);
+        }
+        if (join.join != null) {
+            throw new IllegalArgumentException("The operation already joins a fork: " + join);
+        }
+        final List<Operation<T>> branchList = Collections.unmodifiableList(new ArrayList<>(Arrays.asList(branches)));
+        if (branchList.contains(join) || branchList.contains(source)) {
+            throw new IllegalArgumentException("A branch has to consist of at least one operation other than the fork and the join");
+        }
+        final Join<T> fanIn = new Join<>(join, branches.length);
+        source.fork = new Fork<>(branchList, fanIn);
+        join.join = fanIn;
+        sources.add(source);
+        return this;
+    }
+
+    /**
+     * Checks that every branch reaches its join operation and sets the entry operation of the pipeline
+     */
+    public void build() {
+        if (entry == null) {
+            throw new IllegalStateException("The entry operation is not set");
+        }
+        for (final Operation<T> source : sources) {
+            final Join<T> fanIn = source.fork.getJoin();
+            for (final Operation<T> branch : source.fork.getBranches()) {
+                final Set<Operation<T>> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+                Operation<T> operation = branch;
+                while (operation != fanIn.getOperation()) {
+                    if (operation == null || !visited.add(operation)) {
+                        throw new IllegalArgumentException("The branch starting with " + branch + " does not reach the join "
+                                + fanIn.getOperation());
+                    }
+                    operation.enclosingJoin = fanIn;
+                    if (operation.fork != null) {
+                        // skip the nested fork, its branches belong to the nested join
+                        operation = operation.fork.getJoin().getOperation();
+                    } else {
+                        operation = operation.getNextOperation();
+                        if (operation != null && operation.join != null && operation != fanIn.getOperation()) {
+                            throw new IllegalArgumentException("The branch starting with " + branch + " leads to a foreign join "
+                                    + operation);
+                        }
+                    }
+                }
+            }
+        }
+        pipeline.setEntryOperation(entry);
+    }
+}
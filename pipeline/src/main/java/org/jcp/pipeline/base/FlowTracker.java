@@ -0,0 +1,189 @@
+package org.jcp.pipeline.base;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Lock-free counter of the flows in progress, also bounds the number of the flows admitted. A waiter for the
+ * quiescence installs a future that is completed by the flow bringing the counter down to zero, so the waiters are
+ * woken up right after the last flow has finished without polling. The threads waiting for the admission park in a
+ * queue and the head of it is unparked whenever a flow finishes.
+ */
+class FlowTracker {
+
+    private static final CompletableFuture<Void> QUIESCENT = CompletableFuture.completedFuture(null);
+
+    private final long                                     limit;
+    private final AtomicLong                               active;
+    private final AtomicReference<CompletableFuture<Void>> idle;
+    private final Queue<Thread>                            admissionWaiters;
+
+    /**
+     * @param limit maximum number of the flows admitted by {@link #tryAdmit()} and {@link #admit(long)}
+     */
+    FlowTracker(final long limit) {
+        this.limit = limit;
+        this.active = new AtomicLong();
+        this.idle = new AtomicReference<>();
+        this.admissionWaiters = new ConcurrentLinkedQueue<>();
+    }
+
+    /**
+     * Registers a started flow regardless of the limit, used for the flows spawned by the admitted ones
+     */
+    void begin() {
+        active.incrementAndGet();
+    }
+
+    /**
+     * Registers a started flow if the limit has not been reached
+     *
+     * @return whether the flow has been admitted
+     */
+    boolean tryAdmit() {
+        return tryAdmit(1);
+    }
+
+    /**
+     * Registers a number of started flows at once if the limit has not been reached. The flows are admitted as a whole,
+     * so the limit may be exceeded by the size of the group.
+     *
+     * @param count number of the flows
+     * @return whether the flows have been admitted
+     */
+    boolean tryAdmit(final long count) {
+        while (true) {
+            final long current = active.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (active.compareAndSet(current, current + count)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Registers a started flow, waits for a flow to finish while the limit is reached
+     *
+     * @param timeoutNanos maximum time to wait, negative to wait without a timeout
+     * @return whether the flow has been admitted
+     */
+    boolean admit(final long timeoutNanos) {
+        return admit(1, timeoutNanos);
+    }
+
+    /**
+     * Registers a number of started flows at once, waits for a flow to finish while the limit is reached
+     *
+     * @param count        number of the flows
+     * @param timeoutNanos maximum time to wait, negative to wait without a timeout
+     * @return whether the flows have been admitted
+     */
+    boolean admit(final long count, final long timeoutNanos) {
+        if (tryAdmit(count)) {
+            return true;
+        }
+        if (timeoutNanos == 0) {
+            return false;
+        }
+        final long deadline = System.nanoTime() + timeoutNanos;
+        final Thread current = Thread.currentThread();
+        admissionWaiters.add(current);
+        try {
+            // checked again after the thread has been queued, so that a finishing flow cannot be missed
+            while (!tryAdmit(count)) {
+                if (timeoutNanos < 0) {
+                    LockSupport.park(this);
+                } else {
+                    final long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    LockSupport.parkNanos(this, remaining);
+                }
+                // parking does not clear the interrupt status, it is left set for the caller
+                if (current.isInterrupted()) {
+                    throw new RuntimeException(new InterruptedException("Interrupted while waiting for the flow admission"));
+                }
+            }
+            return true;
+        } finally {
+            admissionWaiters.remove(current);
+            // pass the wake up on if there is still capacity left, it might have been meant for this thread
+            if (active.get() < limit) {
+                signalAdmission();
+            }
+        }
+    }
+
+    /**
+     * Registers a finished flow, notifies the waiters if it was the last one or if there is capacity for a new flow
+     */
+    void end() {
+        end(1);
+    }
+
+    /**
+     * Registers a number of finished flows
+     *
+     * @param count number of the flows
+     */
+    void end(final long count) {
+        if (count == 0) {
+            return;
+        }
+        final long remaining = active.addAndGet(-count);
+        if (remaining < limit) {
+            signalAdmission();
+        }
+        if (remaining == 0) {
+            final CompletableFuture<Void> waiter = idle.getAndSet(null);
+            if (waiter != null) {
+                waiter.complete(null);
+            }
+        }
+    }
+
+    private void signalAdmission() {
+        final Thread waiter = admissionWaiters.peek();
+        if (waiter != null) {
+            LockSupport.unpark(waiter);
+        }
+    }
+
+    /**
+     * @return number of the flows in progress
+     */
+    long getActive() {
+        return active.get();
+    }
+
+    /**
+     * @return a future completed as soon as there are no flows in progress
+     */
+    CompletableFuture<Void> onQuiescence() {
+        while (true) {
+            if (active.get() == 0) {
+                return QUIESCENT;
+            }
+            CompletableFuture<Void> waiter = idle.get();
+            if (waiter == null) {
+                waiter = new CompletableFuture<>();
+                if (!idle.compareAndSet(null, waiter)) {
+                    continue;
+                }
+            }
+            // the last flow might have finished before the waiter was installed
+            if (active.get() == 0) {
+                idle.compareAndSet(waiter, null);
+                waiter.complete(null);
+            }
+            return waiter;
+        }
+    }
+}
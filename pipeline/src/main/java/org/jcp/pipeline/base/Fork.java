@@ -0,0 +1,32 @@
+package org.jcp.pipeline.base;
+
+import java.util.List;
+
+/**
+ * Fan-out of an {@link Operation}: the processed object is passed to all the branches concurrently and the branches
+ * meet again at the {@link Join}.
+ *
+ * @param <T> the supported type of the object that will be processed.
+ */
+class Fork<T> {
+
+    private final List<Operation<T>> branches;
+    private final Join<T>            join;
+
+    /**
+     * @param branches the first operations of the branches
+     * @param join     the point the branches meet
+     */
+    Fork(final List<Operation<T>> branches, final Join<T> join) {
+        this.branches = branches;
+        this.join = join;
+    }
+
+    List<Operation<T>> getBranches() {
+        return branches;
+    }
+
+    Join<T> getJoin() {
+        return join;
+    }
+}
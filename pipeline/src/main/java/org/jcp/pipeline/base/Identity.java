@@ -0,0 +1,23 @@
+package org.jcp.pipeline.base;
+
+/**
+ * Identity based map key, the processed objects are tracked by their identity regardless of their equality
+ */
+final class Identity {
+
+    private final Object value;
+
+    Identity(final Object value) {
+        this.value = value;
+    }
+
+    @Override
+    public int hashCode() {
+        return System.identityHashCode(value);
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        return obj instanceof Identity && ((Identity) obj).value == value;
+    }
+}
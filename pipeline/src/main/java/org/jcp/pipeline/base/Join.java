@@ -0,0 +1,102 @@
+package org.jcp.pipeline.base;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fan-in point of a {@link Fork}: counts the branches that have reached the join operation for every object passing
+ * the fork. The object is tracked by its identity, so the same instance must not pass the same fork concurrently.
+ *
+ * @param <T> the supported type of the object that will be processed.
+ */
+class Join<T> {
+
+    /**
+     * Outcome of a branch arriving at the join
+     */
+    enum Arrival {
+        /**
+         * other branches are still running
+         */
+        PENDING,
+        /**
+         * all the branches have completed successfully, the join operation can be performed
+         */
+        COMPLETED,
+        /**
+         * all the branches have finished, but at least one of them has failed
+         */
+        FAILED
+    }
+
+    private final Operation<T>                     operation;
+    private final int                              branches;
+    private final ConcurrentMap<Identity, Counter> pending;
+
+    /**
+     * @param operation the join operation
+     * @param branches  number of the branches joined
+     */
+    Join(final Operation<T> operation, final int branches) {
+        this.operation = operation;
+        this.branches = branches;
+        this.pending = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Starts tracking the object, called by the fork before the branches are dispatched
+     *
+     * @param value the object passing the fork
+     */
+    void open(final T value) {
+        if (pending.putIfAbsent(new Identity(value), new Counter(branches)) != null) {
+            throw new IllegalStateException("The object is already passing the fork to " + operation + ": " + value);
+        }
+    }
+
+    /**
+     * Registers a finished branch
+     *
+     * @param value  the object
+     * @param failed whether the branch has failed
+     * @return the state of the object after the arrival
+     */
+    Arrival arrive(final T value, final boolean failed) {
+        final Identity key = new Identity(value);
+        final Counter counter = pending.get(key);
+        if (counter == null) {
+            throw new IllegalStateException("The object has not passed the fork to " + operation + ": " + value);
+        }
+        if (failed) {
+            counter.failed = true;
+        }
+        if (counter.decrementAndGet() > 0) {
+            return Arrival.PENDING;
+        }
+        pending.remove(key);
+        return counter.failed ? Arrival.FAILED : Arrival.COMPLETED;
+    }
+
+    Operation<T> getOperation() {
+        return operation;
+    }
+
+    /**
+     * @return number of the objects waiting for some of their branches
+     */
+    int getPending() {
+        return pending.size();
+    }
+
+    /**
+     * Remaining branches of a single object
+     */
+    private static class Counter extends AtomicInteger {
+        private volatile boolean failed;
+
+        private Counter(final int branches) {
+            super(branches);
+        }
+    }
+}
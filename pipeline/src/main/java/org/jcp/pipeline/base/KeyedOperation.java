@@ -0,0 +1,166 @@
+package org.jcp.pipeline.base;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A stateful operation partitioned by a key, for example an aggregation per customer. Every object is routed to one of
+ * the partitions by the hash of its key and every partition is served by a single dedicated thread that owns the state
+ * of the partition, so the state is never shared between threads and requires no locking. The objects with the same
+ * key are processed one after another in the order they have reached the operation, the partitions are processed in
+ * parallel, so the throughput scales with the number of partitions up to the number of cores.
+ * <p>
+ * The operation runs in its own partitioned {@link Stage}: the flow reaching the operation hands the object over to
+ * the queue of the partition and the partition thread performs the operation along with the following ones, up to the
+ * next staged operation. A full partition queue blocks the upstream. On the pipeline shutdown every partition thread
+ * processes the objects left in its queue, then flushes the state of its partition (see {@link #flush(int, Object)}),
+ * so the state is never touched by the shutdown thread.
+ *
+ * @param <T> the supported type of the object that will be processed.
+ * @param <K> the key type
+ * @param <S> the partition state type
+ */
+public abstract class KeyedOperation<T, K, S> extends Operation<T> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(KeyedOperation.class);
+
+    private static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+    private final Object[]      states;
+    private final AtomicInteger flushed;
+
+    /**
+     * Creates an operation with a partition per available processor
+     *
+     * @param pipeline               reference to the main pipeline process
+     * @param nextOperationReference reference to the operation that has to be performed right after the current
+     *                               operation is executed
+     */
+    protected KeyedOperation(final Pipeline<T> pipeline, final Operation<T> nextOperationReference) {
+        this(pipeline, nextOperationReference, Runtime.getRuntime().availableProcessors(), DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * Creates an operation, the partition threads are started when the pipeline is compiled (see
+     * {@link Pipeline#compile()})
+     *
+     * @param pipeline               reference to the main pipeline process
+     * @param nextOperationReference reference to the operation that has to be performed right after the current
+     *                               operation is executed
+     * @param partitions             number of the partitions, each one is served by its own thread
+     * @param queueCapacity          maximum number of the objects waiting for a partition
+     */
+    protected KeyedOperation(final Pipeline<T> pipeline,
+                             final Operation<T> nextOperationReference,
+                             final int partitions,
+                             final int queueCapacity) {
+        super(pipeline, nextOperationReference);
+        if (partitions < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("Invalid number of partitions " + partitions + " or queue capacity " + queueCapacity);
+        }
+        this.states = new Object[partitions];
+        this.flushed = new AtomicInteger();
+        stage = new Stage<>(pipeline, this, queueCapacity, partitions, this::partitionOf, this::flushPartition);
+    }
+
+    /**
+     * @param value the object
+     * @return the key the object is partitioned by, {@code null} is routed to the first partition
+     */
+    protected abstract K getKey(T value);
+
+    /**
+     * Creates the state of a partition, called by the partition thread before the first object of the partition is
+     * processed
+     *
+     * @param partition the partition index
+     * @return the partition state
+     */
+    protected abstract S createState(int partition);
+
+    /**
+     * Processes the object, always called by the thread of the partition, so the state can be accessed without locking
+     *
+     * @param value the object to be handled
+     * @param state the state of the partition of the object
+     */
+    protected abstract void doPerform(T value, S state);
+
+    /**
+     * Flushes the state of a partition, for example persists the aggregates. Called on the pipeline shutdown by the
+     * thread of every partition that has processed an object, after the last object queued for the partition.
+     *
+     * @param partition the partition index
+     * @param state     the partition state
+     */
+    protected void flush(final int partition, final S state) {
+        // nothing to flush by default
+    }
+
+    /**
+     * Routes the object to the state of its partition
+     *
+     * @param value the object to be handled
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    protected final void doPerform(final T value) {
+        final int partition = partitionOf(value);
+        S state = (S) states[partition];
+        if (state == null) {
+            state = createState(partition);
+            states[partition] = state;
+        }
+        doPerform(value, state);
+    }
+
+    /**
+     * Leaves the partition states alone, they are flushed by the partition threads. Logs the partitions which threads
+     * have not stopped within the shutdown timeout, their states are flushed once they stop. The subclasses overriding
+     * the method have to call it.
+     */
+    @Override
+    public void cleanup() {
+        final int pending = states.length - flushed.get();
+        if (pending > 0 && stage.getWorkerCount() > 0) {
+            LOG.warn("{} partition(s) of {} are still running, their states are flushed once they stop", pending, this);
+        }
+    }
+
+    /**
+     * Flushes the state of a partition, called by the partition thread once it has taken the stop pill
+     *
+     * @param partition the partition index
+     */
+    @SuppressWarnings("unchecked")
+    private void flushPartition(final int partition) {
+        try {
+            final S state = (S) states[partition];
+            if (state != null) {
+                flush(partition, state);
+            }
+        } finally {
+            flushed.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return number of the partitions
+     */
+    public int getPartitions() {
+        return states.length;
+    }
+
+    /**
+     * @param value the object
+     * @return the index of the partition the object is routed to
+     */
+    int partitionOf(final T value) {
+        final int hash = Objects.hashCode(getKey(value));
+        // the high bits are mixed in, so the keys differing in the high bits only are spread as well
+        return Math.floorMod(hash ^ (hash >>> 16), states.length);
+    }
+}
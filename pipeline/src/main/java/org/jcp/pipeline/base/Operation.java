@@ -11,6 +11,41 @@ public abstract class Operation<T> {
     private final Pipeline<T> pipelineReference;
     private final Operation<T> nextOperationReference;
 
+    /**
+     * Set if the operation runs in its own {@link Stage}
+     */
+    Stage<T> stage;
+
+    /**
+     * Set if the processed objects fan out to several branches (see {@link DagBuilder})
+     */
+    Fork<T> fork;
+
+    /**
+     * Set if the operation joins the branches of a fork
+     */
+    Join<T> join;
+
+    /**
+     * Capacity of the reorder buffer if the operation requires the start order, 0 otherwise
+     */
+    int reorderCapacity;
+
+    /**
+     * Created by the compilation of the pipeline if the operation requires the start order
+     */
+    ReorderBuffer<T> reorderBuffer;
+
+    /**
+     * The join of the fork branch the operation belongs to, {@code null} outside of the branches
+     */
+    Join<T> enclosingJoin;
+
+    /**
+     * Position in the compiled chain of the pipeline, the successors are resolved by the {@link Pipeline}
+     */
+    int index = -1;
+
     /**
      * Default constructor, accepts the main pipeline reference and the next operation to be executed.
      *
@@ -33,9 +68,6 @@ public abstract class Operation<T> {
      */
     void perform(final T value) {
         doPerform(value);
-        if (nextOperationReference != null) {
-            nextOperationReference.perform(value);
-        }
     }
 
     /**
@@ -46,6 +78,13 @@ public abstract class Operation<T> {
      */
     protected abstract void doPerform(T value);
 
+    /**
+     * @return the operation that is performed right after this one, {@code null} if this one is the last
+     */
+    Operation<T> getNextOperation() {
+        return nextOperationReference;
+    }
+
     /**
      * Getter for the main pipeline reference
      *
@@ -1,19 +1,50 @@
 package org.jcp.pipeline.base;
 
 import org.jcp.pipeline.base.exception.PipelineErrorHandler;
+import org.jcp.pipeline.base.metrics.OperationMetrics;
+import org.jcp.pipeline.base.metrics.PipelineMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
-import java.util.concurrent.Semaphore;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
- * Directs the pipeline flow by scheduling execution of the operation sequences, allows pausing operation by putting them
- * "on hold", performs clean ups and takes care of the synchronization.
+ * Directs the pipeline flow by scheduling execution of the operation sequences, tracks the flows in progress, performs
+ * clean ups and takes care of the synchronization.
+ * <p>
+ * By default a flow runs the whole operation chain in a single {@link Executor} task. Operations can be given their own
+ * {@link Stage} (see {@link #configureStage(Operation, int, int)}): a bounded queue and a dedicated set of worker
+ * threads. A flow reaching a staged operation is handed over to the stage queue, so that the stages overlap and every
+ * stage can be sized according to its own cost. A {@link KeyedOperation} is staged with a queue and a thread per
+ * partition, so its state is owned by the partition threads.
+ * <p>
+ * The operations can form a directed acyclic graph (see {@link DagBuilder}), the branches of a fork are performed as
+ * separate flows and the flow reaching a join last proceeds with the join operation.
+ * <p>
+ * An {@link AsyncOperation} releases the flow thread while its processing is in progress, the flow is continued by an
+ * {@link Executor} task once the processing completes.
+ * <p>
+ * The order sensitive operations receive the objects in the order the flows have been started (see
+ * {@link #configureOrdering(Operation, int)}), the preceding operations are performed concurrently regardless.
  * <p>
  * At the moment is not perfect, so one has to take care.
  */
@@ -21,19 +52,34 @@ public class Pipeline<T> {
 
     private static final Logger LOG = LoggerFactory.getLogger(Pipeline.class);
 
+    private static final int DEFAULT_CHUNK_SIZE = 256;
+
+    private static final byte TRAIT_FORK    = 1;
+    private static final byte TRAIT_JOIN    = 2;
+    private static final byte TRAIT_STAGED  = 4;
+    private static final byte TRAIT_ASYNC   = 8;
+    private static final byte TRAIT_ORDERED = 16;
+
     private final ThreadLocal<PipelineOperationThread> pipelineOperationThreadThreadLocal;
     private final LinkedList<Operation<T>> operations;
-    private final Semaphore semaphore;
     private final PipelineErrorHandler pipelineErrorHandler;
     private final Executor executor;
     private final int shutdownTimeout;
     private final AtomicLong onHold;
-    private final AtomicLong startedPipelineFlows;
+    private final FlowTracker startedPipelineFlows;
+    private final PipelineMetrics metrics;
 
-    private boolean shutdownFlag = false;
+    private volatile Operation<T> entry;
+    private volatile Operation<T>[] compiledChain;
+    private int[] compiledSuccessors;
+    private byte[] compiledTraits;
+    private OperationMetrics[] compiledMetrics;
+    private Sequencer<T> sequencer;
+    private volatile boolean shutdownFlag = false;
+    private CompletableFuture<Void> drain;
 
     /**
-     * Creates a {@link Pipeline} instance
+     * Creates a {@link Pipeline} instance that admits any number of flows
      *
      * @param executor             operation execution scheduler
      * @param pipelineErrorHandler error handler
@@ -42,14 +88,34 @@ public class Pipeline<T> {
     public Pipeline(final Executor executor,
                     final PipelineErrorHandler pipelineErrorHandler,
                     final int shutdownTimeout) {
-        this.pipelineOperationThreadThreadLocal = new ThreadLocal<>();
+        this(executor, pipelineErrorHandler, shutdownTimeout, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Creates a {@link Pipeline} instance
+     *
+     * @param executor             operation execution scheduler
+     * @param pipelineErrorHandler error handler
+     * @param shutdownTimeout      timeout, in seconds
+     * @param maxInFlight          maximum number of the flows in progress, the flows spawned by the fork branches are
+     *                             counted as well. Should not exceed the queue capacity of a bounded executor, a
+     *                             finished flow is released before its task leaves the executor thread.
+     */
+    public Pipeline(final Executor executor,
+                    final PipelineErrorHandler pipelineErrorHandler,
+                    final int shutdownTimeout,
+                    final int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("At least one flow has to be allowed: " + maxInFlight);
+        }
+        this.pipelineOperationThreadThreadLocal = ThreadLocal.withInitial(PipelineOperationThread::new);
         this.operations = new LinkedList<>();
-        this.semaphore = new Semaphore(1);
         this.pipelineErrorHandler = pipelineErrorHandler;
         this.shutdownTimeout = shutdownTimeout;
         this.executor = executor;
         this.onHold = new AtomicLong(0);
-        this.startedPipelineFlows = new AtomicLong(0);
+        this.startedPipelineFlows = new FlowTracker(maxInFlight);
+        this.metrics = new PipelineMetrics(startedPipelineFlows::getActive, onHold::get);
     }
 
     /**
@@ -59,6 +125,7 @@ public class Pipeline<T> {
      */
     void addOperation(final Operation<T> operation) {
         assert operation != null;
+        checkNotCompiled();
         operations.add(operation);
     }
 
@@ -69,142 +136,1132 @@ public class Pipeline<T> {
      */
     public void setEntryOperation(final Operation<T> operation) {
         assert operation != null;
-        operations.add(operation);
+        checkNotCompiled();
+        // the operation itself has been registered by its constructor already
+        this.entry = operation;
+    }
+
+    /**
+     * Runs the operation in its own {@link Stage}: the objects reaching the operation are queued and processed by the
+     * stage workers, which also perform the following operations up to the next staged one. Has to be called before the
+     * flows are started.
+     *
+     * @param operation     the {@link Operation} to be staged
+     * @param workers       number of the stage worker threads
+     * @param queueCapacity maximum number of objects waiting for the stage, a full queue blocks the upstream
+     */
+    public void configureStage(final Operation<T> operation, final int workers, final int queueCapacity) {
+        assert operation != null;
+        checkNotCompiled();
+        if (workers < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("A stage requires at least one worker and a non-empty queue");
+        }
+        if (operation.stage != null) {
+            throw new IllegalStateException("The operation is already staged: " + operation);
+        }
+        final Stage<T> stage = new Stage<>(this, operation, queueCapacity);
+        operation.stage = stage;
+        stage.startWorkers(workers);
+    }
+
+    /**
+     * Makes the operation receive the objects in the order the flows have been started. Every flow started afterwards
+     * takes a sequence number and the objects arriving at the operation ahead of their turn are parked in a reorder
+     * buffer, the flow completing the sequence performs the operation for the parked objects one after another. The
+     * operations that follow are performed in order as well, up to the next staged or asynchronous operation. The
+     * objects that fail before reaching the operation do not hold back the others.
+     * <p>
+     * The buffer capacity bounds the number of flows between the start and the operation: a flow is not started before
+     * its buffer slot is free, so the start methods block (or fail for the non-blocking ones) while the oldest object
+     * is still on its way. The operation must not be the entry one, a staged one or within the branches of a fork. The
+     * bulk starts are performed one by one in the ordered mode. Has to be called before the flows are started.
+     *
+     * @param operation      the order sensitive {@link Operation}
+     * @param bufferCapacity maximum number of flows between the start and the operation
+     */
+    public void configureOrdering(final Operation<T> operation, final int bufferCapacity) {
+        assert operation != null;
+        checkNotCompiled();
+        if (bufferCapacity < 1) {
+            throw new IllegalArgumentException("Invalid reorder buffer capacity: " + bufferCapacity);
+        }
+        operation.reorderCapacity = bufferCapacity;
     }
 
     /**
      * The {@link Executor} then schedules the flow for execution, by calling the #doExecute() method in a new {@link Pipeline}
-     * operation thread. In the end of the flow the flow operation counter is decreased. In case if the shutdown was issued, no
-     * {@link Pipeline} operation flow executions are allowed.
+     * operation thread, or the flow is handed over to the {@link Stage} of the entry operation if there is one. In the end
+     * of the flow the flow operation counter is decreased. Blocks while the maximum number of flows is in progress. In
+     * case if the shutdown was issued, no {@link Pipeline} operation flow executions are allowed.
      *
      * @param parameter the entity to be passed through the pipeline
      */
     public void start(final T parameter) {
-        if (shutdownFlag) {
-            throw new IllegalStateException("Pipeline shutdown had been initiated, no new operation flows are allowed to be scheduled.");
+        final Operation<T> first = getEntry();
+        admit(parameter, -1);
+        boolean scheduled = false;
+        try {
+            schedule(first, parameter);
+            scheduled = true;
+        } finally {
+            if (!scheduled) {
+                abandon(parameter);
+            }
         }
+    }
 
-        // the first operation is an "entry point" and should have been added last
-        final Operation<T> first = operations.getLast();
+    /**
+     * Starts the flow if the maximum number of flows is not reached and the executor accepts it
+     *
+     * @param parameter the entity to be passed through the pipeline
+     * @return whether the flow has been started
+     */
+    public boolean tryStart(final T parameter) {
+        final Operation<T> first = getEntry();
+        if (!admit(parameter, 0)) {
+            return false;
+        }
+        boolean scheduled = false;
+        try {
+            scheduled = trySchedule(first, parameter);
+        } finally {
+            if (!scheduled) {
+                abandon(parameter);
+            }
+        }
+        return scheduled;
+    }
 
-        startedPipelineFlows.incrementAndGet();
+    /**
+     * Starts the flow, waits while the maximum number of flows is in progress as maximum till the timeout is reached
+     *
+     * @param parameter the entity to be passed through the pipeline
+     * @param timeout   maximum time to wait
+     * @param unit      unit of the timeout
+     * @return whether the flow has been started
+     */
+    public boolean tryStart(final T parameter, final long timeout, final TimeUnit unit) {
+        final Operation<T> first = getEntry();
+        if (!admit(parameter, Math.max(0, unit.toNanos(timeout)))) {
+            return false;
+        }
+        boolean scheduled = false;
+        try {
+            scheduled = trySchedule(first, parameter);
+        } finally {
+            if (!scheduled) {
+                abandon(parameter);
+            }
+        }
+        return scheduled;
+    }
 
-        executor.execute(() -> {
-            startThread(first);
+    /**
+     * Starts the flow, or performs it in the calling thread if the maximum number of flows is in progress or the
+     * executor rejects it. Throttles the caller to the pace of the pipeline without blocking it idle. In the ordered
+     * mode the caller only waits for the room in the reorder buffers, which is bounded by the progress of the flows
+     * started before. Must not be called from within a flow. If the entry operation is a {@link KeyedOperation} the flow is always started, since
+     * only the partition threads may perform it.
+     *
+     * @param parameter the entity to be passed through the pipeline
+     */
+    public void startOrRun(final T parameter) {
+        final Operation<T> first = getEntry();
+        if (first.stage != null && first.stage.isPartitioned()) {
+            start(parameter);
+            return;
+        }
+        // the caller runs the flow if it is not admitted, so the sequence is taken before the admission
+        if (sequencer != null) {
+            final Sequencer.Sequence sequence = sequencer.assign(parameter);
+            boolean ready = false;
             try {
-                doExecute(first, parameter);
+                ready = sequencer.awaitRoom(sequence, -1);
             } finally {
+                if (!ready) {
+                    abandon(parameter);
+                }
+            }
+        }
+        boolean started = false;
+        try {
+            if (startedPipelineFlows.tryAdmit() && trySchedule(first, parameter)) {
+                started = true;
+                return;
+            }
+            // the flow is counted, so that the drain waits for it, but it is not subject to the limit
+            startedPipelineFlows.begin();
+            checkShutdown();
+            started = true;
+        } finally {
+            if (!started) {
+                abandon(parameter);
+            }
+        }
+        final PipelineOperationThread context = startThread(first);
+        try {
+            continueFlow(context, first, parameter);
+        } finally {
+            finishThread();
+        }
+    }
+
+    /**
+     * Starts a flow for each of the items, see {@link #startAll(Spliterator, int)}
+     *
+     * @param items the entities to be passed through the pipeline
+     */
+    public void startAll(final Collection<? extends T> items) {
+        startAll(items.spliterator(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Starts a flow for each of the items, see {@link #startAll(Spliterator, int)}
+     *
+     * @param items the entities to be passed through the pipeline
+     */
+    public void startAll(final Stream<? extends T> items) {
+        startAll(items.spliterator(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Starts a flow for each of the items. The items are split into chunks and every chunk is passed through the
+     * operation chain by a single {@link Executor} task, so the per-task overhead is shared by the items of a chunk.
+     * The sized sources are split by {@link Spliterator#trySplit()} without copying, the other ones are copied into
+     * chunks. A chunk is admitted as a whole, blocking while the maximum number of flows is in progress. The failures
+     * are handled by the {@link PipelineErrorHandler} item by item, as for the flows started one by one. If the entry
+     * operation is staged or the pipeline runs in the ordered mode, the items are started one by one.
+     *
+     * @param items     the entities to be passed through the pipeline
+     * @param chunkSize maximum number of items processed by a single task
+     */
+    public void startAll(final Spliterator<? extends T> items, final int chunkSize) {
+        assert items != null;
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Invalid chunk size: " + chunkSize);
+        }
+        final Operation<T> first = getEntry();
+        if (first.stage != null || sequencer != null) {
+            items.forEachRemaining(this::start);
+            return;
+        }
+
+        if (items.hasCharacteristics(Spliterator.SUBSIZED)) {
+            final Deque<Spliterator<? extends T>> pending = new ArrayDeque<>();
+            pending.push(items);
+            while (!pending.isEmpty()) {
+                Spliterator<? extends T> chunk = pending.pop();
+                Spliterator<? extends T> prefix;
+                // the prefix is scheduled first, so that the chunks are started in the encounter order
+                while (chunk.estimateSize() > chunkSize && (prefix = chunk.trySplit()) != null) {
+                    pending.push(chunk);
+                    chunk = prefix;
+                }
+                if (chunk.estimateSize() > 0) {
+                    scheduleChunk(first, chunk, chunk.estimateSize());
+                }
+            }
+        } else {
+            while (true) {
+                final List<T> chunk = new ArrayList<>(chunkSize);
+                while (chunk.size() < chunkSize && items.tryAdvance(chunk::add)) {
+                    // collecting the chunk
+                }
+                if (chunk.isEmpty()) {
+                    return;
+                }
+                scheduleChunk(first, chunk.spliterator(), chunk.size());
+            }
+        }
+    }
+
+    /**
+     * The operation metrics are available once the pipeline is compiled, named after the operation class and its
+     * position in the flow order
+     *
+     * @return the pipeline instrumentation
+     */
+    public PipelineMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return number of the flows in progress, including the ones waiting in the stage queues
+     */
+    public long getInFlight() {
+        return startedPipelineFlows.getActive();
+    }
+
+    /**
+     * Freezes the topology: the operations reachable from the entry one are numbered in the flow order and laid out
+     * in flat arrays along with the indexes of their successors and their traits, so a flow is performed by a tight
+     * loop over the arrays. Called by the first start of a flow if not called explicitly, neither operations nor stages
+     * or forks can be added afterwards.
+     */
+    public synchronized void compile() {
+        if (compiledChain != null) {
+            return;
+        }
+        if (entry == null) {
+            throw new IllegalStateException("The entry operation is not set");
+        }
+        final List<Operation<T>> order = flowOrder();
+        @SuppressWarnings("unchecked")
+        final Operation<T>[] chain = order.toArray(new Operation[0]);
+        final int[] successors = new int[chain.length];
+        final byte[] traits = new byte[chain.length];
+        for (int i = 0; i < chain.length; i++) {
+            chain[i].index = i;
+        }
+        for (int i = 0; i < chain.length; i++) {
+            final Operation<T> operation = chain[i];
+            final Operation<T> next = operation.getNextOperation();
+            successors[i] = next == null ? -1 : next.index;
+            traits[i] = (byte) ((operation.fork != null ? TRAIT_FORK : 0)
+                    | (operation.join != null ? TRAIT_JOIN : 0)
+                    | (operation.stage != null ? TRAIT_STAGED : 0)
+                    | (operation instanceof AsyncOperation ? TRAIT_ASYNC : 0)
+                    | (operation.reorderCapacity > 0 ? TRAIT_ORDERED : 0));
+        }
+        final List<ReorderBuffer<T>> buffers = new ArrayList<>();
+        for (final Operation<T> operation : chain) {
+            if (operation.reorderCapacity > 0) {
+                if (operation == entry || operation.stage != null || operation.enclosingJoin != null) {
+                    throw new IllegalStateException("The order cannot be restored in front of " + operation
+                            + ", it is the entry or a staged operation or it is within a fork branch");
+                }
+                operation.reorderBuffer = new ReorderBuffer<>(operation, operation.reorderCapacity, buffers.size());
+                buffers.add(operation.reorderBuffer);
+            }
+        }
+        final OperationMetrics[] operationMetrics = new OperationMetrics[chain.length];
+        for (int i = 0; i < chain.length; i++) {
+            operationMetrics[i] = metrics.addOperation(chain[i].getClass().getSimpleName() + "-" + i);
+        }
+        compiledSuccessors = successors;
+        compiledTraits = traits;
+        compiledMetrics = operationMetrics;
+        if (!buffers.isEmpty()) {
+            @SuppressWarnings("unchecked")
+            final ReorderBuffer<T>[] ordered = buffers.toArray(new ReorderBuffer[0]);
+            sequencer = new Sequencer<>(ordered);
+        }
+        // the keyed operations only create their stages and the batch operations their buffers, the threads are started
+        // once the topology is valid, so a failed compilation leaves none behind
+        for (final Operation<T> operation : chain) {
+            if (operation.stage != null && operation.stage.isPartitioned()) {
+                operation.stage.startWorkers(operation.stage.getPartitions());
+            }
+            if (operation instanceof BatchOperation) {
+                ((BatchOperation<T>) operation).startTimer();
+            }
+        }
+        // published last, the volatile write makes the arrays and the indexes visible
+        compiledChain = chain;
+    }
+
+    /**
+     * @return the stages of the compiled pipeline in the flow order
+     */
+    List<Stage<T>> getStages() {
+        final List<Stage<T>> stages = new ArrayList<>();
+        for (final Operation<T> operation : compiledChain) {
+            if (operation.stage != null) {
+                stages.add(operation.stage);
+            }
+        }
+        return stages;
+    }
+
+    /**
+     * @param staged the staged operation of the compiled pipeline
+     * @return the metrics of the operations performed by the stage workers: the staged operation along with the
+     * following ones up to the next staged operations
+     */
+    List<OperationMetrics> getStageMetrics(final Operation<T> staged) {
+        final List<OperationMetrics> segment = new ArrayList<>();
+        final Set<Operation<T>> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        final Deque<Operation<T>> pending = new ArrayDeque<>();
+        pending.push(staged);
+        while (!pending.isEmpty()) {
+            final Operation<T> operation = pending.pop();
+            if (!visited.add(operation) || (operation != staged && operation.stage != null)) {
+                continue;
+            }
+            segment.add(compiledMetrics[operation.index]);
+            successorsOf(operation).forEach(pending::push);
+        }
+        return segment;
+    }
+
+    /**
+     * @return whether {@link #compile()} has been called
+     */
+    public boolean isCompiled() {
+        return compiledChain != null;
+    }
+
+    /**
+     * Rejects the topology changes after the compilation
+     */
+    void checkNotCompiled() {
+        if (compiledChain != null) {
+            throw new IllegalStateException("The pipeline has been compiled, the topology cannot be changed");
+        }
+    }
+
+    private Operation<T> getEntry() {
+        if (compiledChain == null) {
+            compile();
+        }
+        return entry;
+    }
+
+    /**
+     * The flow is registered before the flag is checked, so the drain either sees the flow or the flow sees the flag
+     */
+    private void checkShutdown() {
+        if (shutdownFlag) {
+            decrementStarted();
+            throw new IllegalStateException("Pipeline shutdown had been initiated, no new operation flows are allowed to be scheduled.");
+        }
+    }
+
+    /**
+     * Admits the flows of a chunk and schedules a single task for them
+     */
+    private void scheduleChunk(final Operation<T> first, final Spliterator<? extends T> chunk, final long size) {
+        startedPipelineFlows.admit(size, -1);
+        if (shutdownFlag) {
+            startedPipelineFlows.end(size);
+            throw new IllegalStateException("Pipeline shutdown had been initiated, no new operation flows are allowed to be scheduled.");
+        }
+        try {
+            executor.execute(new ChunkTask(first, chunk, size));
+        } catch (RuntimeException e) {
+            startedPipelineFlows.end(size);
+            throw e;
+        }
+    }
+
+    /**
+     * Schedules an admitted flow without blocking
+     *
+     * @return {@code false} if the executor has rejected the flow or the entry stage queue is full
+     */
+    private boolean trySchedule(final Operation<T> first, final T parameter) {
+        if (first.stage != null) {
+            checkShutdown();
+            final boolean queued;
+            try {
+                queued = first.stage.offer(parameter);
+            } catch (RuntimeException e) {
                 decrementStarted();
-                finishThread();
+                throw e;
+            }
+            if (!queued) {
+                decrementStarted();
+            }
+            return queued;
+        }
+        try {
+            schedule(first, parameter);
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Schedules an admitted flow, the registration is reverted if the flow cannot be scheduled
+     */
+    private void schedule(final Operation<T> first, final T parameter) {
+        checkShutdown();
+        try {
+            if (first.stage != null) {
+                first.stage.enqueue(parameter);
+            } else {
+                executor.execute(() -> {
+                    final PipelineOperationThread context = startThread(first);
+                    try {
+                        continueFlow(context, first, parameter);
+                    } finally {
+                        finishThread();
+                    }
+                });
             }
-        });
+        } catch (RuntimeException e) {
+            decrementStarted();
+            throw e;
+        }
     }
 
     /**
-     * At the end of an operations flow decreases the started flows counter taking care of the synchronization.
+     * Performs the flow starting with the given operation and decreases the started flows counter, unless the flow has
+     * been handed over to a {@link Stage}.
+     *
+     * @param context   the context of the current thread, returned by {@link #startThread(Operation)}
+     * @param operation the {@link Operation} to start with
+     * @param parameter object to be passed to the operations
      */
-    private void decrementStarted() {
+    void continueFlow(final PipelineOperationThread context, final Operation<T> operation, final T parameter) {
+        boolean handedOver = false;
         try {
-            semaphore.acquire();
-            startedPipelineFlows.decrementAndGet();
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
+            handedOver = doExecute(context, operation, parameter);
         } finally {
-            semaphore.release();
+            if (!handedOver) {
+                decrementStarted();
+            }
         }
     }
 
     /**
-     * Starts the actual processing flow by calling the actual {@link Operation#perform(Object)}. Makes sure that the
-     * operation is performed inside of the {@link Pipeline} flow.
+     * At the end of an operations flow decreases the started flows counter, the quiescence waiters are notified once
+     * the last flow has finished.
+     */
+    private void decrementStarted() {
+        startedPipelineFlows.end();
+    }
+
+    /**
+     * Starts the actual processing flow by calling the actual {@link Operation#perform(Object)} for each operation of the
+     * compiled chain, until the chain ends, an operation fails or the next operation is staged. Makes sure that the
+     * operations are performed inside of the {@link Pipeline} flow.
      *
+     * @param context   the context of the current thread
      * @param operation the {@link Operation} tp be performed
      * @param parameter object to be passed to the operation
+     * @return {@code true} if the flow has been handed over to a {@link Stage} or to an {@link AsyncOperation}
      */
-    private void doExecute(final Operation<T> operation, final T parameter) {
-        final PipelineOperationThread pipelineOperationThread = pipelineOperationThreadThreadLocal.get();
-        if (pipelineOperationThread == null) {
+    private boolean doExecute(final PipelineOperationThread context, final Operation<T> operation, final T parameter) {
+        if (!context.isActive()) {
             throw new IllegalArgumentException("This method is not allowed to be called outside of a Pipeline thread.");
         }
+        return execute(context, operation.index, parameter, null, 0);
+    }
+
+    /**
+     * The flow loop over the compiled chain
+     *
+     * @param context    the context of the current thread
+     * @param index      index of the first operation to be performed
+     * @param parameter  object to be passed to the operations
+     * @param completion the completed processing of the first operation if it is an {@link AsyncOperation} that has
+     *                   been performed already, {@code null} otherwise
+     * @param startNanos the processing start of the completed operation
+     * @return {@code true} if the flow has been handed over to a {@link Stage} or to an {@link AsyncOperation}
+     */
+    private boolean execute(final PipelineOperationThread context,
+                            final int index,
+                            final T parameter,
+                            final CompletableFuture<Void> completion,
+                            final long startNanos) {
+        final Operation<T>[] chain = compiledChain;
+        final int[] successors = compiledSuccessors;
+        final byte[] traits = compiledTraits;
+        final OperationMetrics[] operationMetrics = compiledMetrics;
 
-        final Operation<?> previousOperation = pipelineOperationThread.put(operation);
+        int currentIndex = index;
+        CompletableFuture<Void> completed = completion;
+        while (true) {
+            final Operation<T> current = chain[currentIndex];
+            final OperationMetrics currentMetrics = operationMetrics[currentIndex];
+            final Operation<?> previousOperation = context.put(current);
+            int next;
+            boolean performed = false;
+            final long currentStartNanos = completed != null ? startNanos : currentMetrics.started();
+            try {
+                if (completed != null) {
+                    AsyncOperation.awaitCompletion(completed);
+                    completed = null;
+                } else if ((traits[currentIndex] & TRAIT_ASYNC) != 0) {
+                    final CompletableFuture<Void> pending = ((AsyncOperation<T>) current).performAsync(parameter);
+                    if (!pending.isDone()) {
+                        final int asyncIndex = currentIndex;
+                        pending.whenComplete((ignored, failure) -> resume(asyncIndex, parameter, pending, currentStartNanos));
+                        return true;
+                    }
+                    AsyncOperation.awaitCompletion(pending);
+                } else {
+                    current.perform(parameter);
+                }
+                performed = true;
+                currentMetrics.performed(currentStartNanos);
+                next = (traits[currentIndex] & TRAIT_FORK) != 0 ? fork(current.fork, parameter).index : successors[currentIndex];
+            } catch (final RuntimeException e) {
+                if (!performed) {
+                    currentMetrics.failed(currentStartNanos);
+                }
+                try {
+                    handleError(e, current, parameter);
+                } finally {
+                    failFlow(current.enclosingJoin, parameter);
+                }
+                return false;
+            } finally {
+                context.reset(previousOperation);
+            }
+
+            if (next < 0) {
+                return false;
+            }
+            final int nextTraits = traits[next];
+            if ((nextTraits & TRAIT_JOIN) != 0 && !join(chain[next].join, parameter)) {
+                return false;
+            }
+            if ((nextTraits & TRAIT_ORDERED) != 0) {
+                // the object is passed to the operation by the drainer of the buffer, possibly the current thread
+                final ReorderBuffer<T> buffer = chain[next].reorderBuffer;
+                if (sequencer.arrive(buffer, parameter)) {
+                    deliver(context, buffer, next);
+                }
+                return true;
+            }
+            if ((nextTraits & TRAIT_STAGED) != 0) {
+                final Operation<T> staged = chain[next];
+                final long enqueueNanos = System.nanoTime();
+                try {
+                    staged.stage.enqueue(parameter);
+                    operationMetrics[next].enqueued(enqueueNanos);
+                } catch (final RuntimeException e) {
+                    try {
+                        handleError(e, staged, parameter);
+                    } finally {
+                        failFlow(staged.enclosingJoin, parameter);
+                    }
+                    return false;
+                }
+                return true;
+            }
+            currentIndex = next;
+        }
+    }
+
+    /**
+     * Continues the flow once the processing of an {@link AsyncOperation} has completed. The flow is continued by an
+     * {@link Executor} task, or by the completing thread if the executor rejects it, so that the flow is never lost.
+     *
+     * @param index      index of the completed operation
+     * @param parameter  the processed object
+     * @param completion the completed processing
+     * @param startNanos the processing start
+     */
+    private void resume(final int index, final T parameter, final CompletableFuture<Void> completion, final long startNanos) {
+        final Operation<T> operation = compiledChain[index];
         try {
-            operation.perform(parameter);
+            executor.execute(() -> {
+                final PipelineOperationThread context = startThread(operation);
+                try {
+                    continueFlow(context, index, parameter, completion, startNanos);
+                } finally {
+                    finishThread();
+                }
+            });
+        } catch (final RejectedExecutionException e) {
+            final PipelineOperationThread current = pipelineOperationThreadThreadLocal.get();
+            if (current.isActive()) {
+                // completed right after the check in a flow thread, the flow is nested into the current one
+                continueFlow(current, index, parameter, completion, startNanos);
+                return;
+            }
+            final PipelineOperationThread context = startThread(operation);
+            try {
+                continueFlow(context, index, parameter, completion, startNanos);
+            } finally {
+                finishThread();
+            }
+        }
+    }
+
+    /**
+     * Performs the rest of the flow after an {@link AsyncOperation}, see {@link #continueFlow(PipelineOperationThread,
+     * Operation, Object)}
+     */
+    private void continueFlow(final PipelineOperationThread context,
+                              final int index,
+                              final T parameter,
+                              final CompletableFuture<Void> completion,
+                              final long startNanos) {
+        boolean handedOver = false;
+        try {
+            handedOver = execute(context, index, parameter, completion, startNanos);
+        } finally {
+            if (!handedOver) {
+                decrementStarted();
+            }
+        }
+    }
+
+    /**
+     * Dispatches all the branches but the first one as separate flows, the current flow proceeds with the first one
+     *
+     * @param fork      the fork to be passed
+     * @param parameter the processed object
+     * @return the first operation of the first branch
+     */
+    private Operation<T> fork(final Fork<T> fork, final T parameter) {
+        fork.getJoin().open(parameter);
+        final List<Operation<T>> branches = fork.getBranches();
+        for (int i = 1; i < branches.size(); i++) {
+            startBranch(branches.get(i), parameter);
+        }
+        return branches.get(0);
+    }
+
+    /**
+     * Starts a new flow with the first operation of a branch
+     *
+     * @param branch    the first operation of the branch
+     * @param parameter the processed object
+     */
+    private void startBranch(final Operation<T> branch, final T parameter) {
+        startedPipelineFlows.begin();
+        try {
+            if (branch.stage != null) {
+                branch.stage.enqueue(parameter);
+            } else {
+                executor.execute(() -> {
+                    final PipelineOperationThread context = startThread(branch);
+                    try {
+                        continueFlow(context, branch, parameter);
+                    } finally {
+                        finishThread();
+                    }
+                });
+            }
         } catch (final RuntimeException e) {
-            pipelineErrorHandler.handle(e, operation, parameter);
+            decrementStarted();
+            try {
+                handleError(e, branch, parameter);
+            } finally {
+                failFlow(branch.enclosingJoin, parameter);
+            }
+        }
+    }
+
+    /**
+     * Registers the arrival of a successful branch at the join
+     *
+     * @param join      the join reached
+     * @param parameter the processed object
+     * @return {@code true} if the flow has to continue with the join operation
+     */
+    private boolean join(final Join<T> join, final T parameter) {
+        switch (join.arrive(parameter, false)) {
+            case COMPLETED:
+                return true;
+            case FAILED:
+                failFlow(join.getOperation().enclosingJoin, parameter);
+                return false;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Registers a failed flow: the failure is propagated through the joins (see {@link #failBranch(Join, Object)}) and
+     * the object is abandoned once none of its branches is running anymore
+     *
+     * @param join      the join of the failed branch, {@code null} if the failure happened outside of a branch
+     * @param parameter the processed object
+     */
+    private void failFlow(final Join<T> join, final T parameter) {
+        if (failBranch(join, parameter)) {
+            abandon(parameter);
+        }
+    }
+
+    /**
+     * Registers a failed branch, so that the join operation is not performed for the object. If the failed branch is
+     * the last one to arrive, the failure is propagated to the enclosing fork branch.
+     *
+     * @param join      the join of the failed branch, {@code null} if the failure happened outside of a branch
+     * @param parameter the processed object
+     * @return {@code true} if the failure has reached the top level, so the object is not processed anymore
+     */
+    private boolean failBranch(final Join<T> join, final T parameter) {
+        Join<T> current = join;
+        while (current != null && current.arrive(parameter, true) != Join.Arrival.PENDING) {
+            current = current.getOperation().enclosingJoin;
+        }
+        return current == null;
+    }
+
+    /**
+     * Admits the flow, takes a sequence number for the object as well if the pipeline runs in the ordered mode
+     *
+     * @param parameter    the object being started
+     * @param timeoutNanos maximum time to wait, negative to wait as long as required
+     * @return {@code false} if the timeout has been reached
+     */
+    private boolean admit(final T parameter, final long timeoutNanos) {
+        final long deadline = System.nanoTime() + timeoutNanos;
+        if (!startedPipelineFlows.admit(timeoutNanos)) {
+            return false;
+        }
+        if (sequencer == null) {
+            return true;
+        }
+        boolean ready = false;
+        try {
+            final Sequencer.Sequence sequence = sequencer.assign(parameter);
+            try {
+                ready = sequencer.awaitRoom(sequence, timeoutNanos < 0 ? -1 : Math.max(0, deadline - System.nanoTime()));
+            } finally {
+                if (!ready) {
+                    abandon(parameter);
+                }
+            }
         } finally {
-            pipelineOperationThread.reset(previousOperation);
+            if (!ready) {
+                decrementStarted();
+            }
         }
+        return ready;
     }
 
     /**
-     * Initializes the {@link ThreadLocal} by sticking a {@link PipelineOperationThread} in it
+     * Skips the object in the reorder buffers it will not reach, so that it does not hold back the objects started
+     * after it
      *
-     * @param operation that will be passed to the {@link PipelineOperationThread}
+     * @param parameter the object that is not processed anymore
+     */
+    private void abandon(final T parameter) {
+        final Sequencer<T> current = sequencer;
+        if (current == null) {
+            return;
+        }
+        final Sequencer.Sequence sequence = current.remove(parameter);
+        if (sequence == null) {
+            return;
+        }
+        final ReorderBuffer<T>[] buffers = current.getBuffers();
+        for (int i = sequence.getPassed(); i < buffers.length; i++) {
+            if (buffers[i].skip(sequence.getValue())) {
+                final PipelineOperationThread context = pipelineOperationThreadThreadLocal.get();
+                if (context.isActive()) {
+                    deliver(context, buffers[i], buffers[i].getOperation().index);
+                } else {
+                    // a flow that has not been started, the drain is performed by the starting thread
+                    startThread(buffers[i].getOperation());
+                    try {
+                        deliver(context, buffers[i], buffers[i].getOperation().index);
+                    } finally {
+                        finishThread();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Performs the flows of the objects released by the reorder buffer one after another, in the sequence order. The
+     * failures are handled by the {@link PipelineErrorHandler} object by object, as for the other flows.
+     *
+     * @param context the context of the current thread, the drainer of the buffer
+     * @param buffer  the reorder buffer
+     * @param index   index of the ordered operation
      */
-    private void startThread(Operation<T> operation) {
-        final PipelineOperationThread existing = pipelineOperationThreadThreadLocal.get();
-        if (existing != null) {
-            throw new IllegalStateException("The thread has already been started: " + existing);
+    private void deliver(final PipelineOperationThread context, final ReorderBuffer<T> buffer, final int index) {
+        boolean drained = false;
+        try {
+            T value;
+            while ((value = buffer.poll()) != null) {
+                boolean handedOver = false;
+                try {
+                    handedOver = execute(context, index, value, null, 0);
+                } catch (RuntimeException e) {
+                    // rethrown by the error handler, the objects behind are delivered regardless
+                    LOG.error("Pipeline flow has failed for {}", value, e);
+                } finally {
+                    if (!handedOver) {
+                        decrementStarted();
+                    }
+                }
+            }
+            drained = true;
+        } finally {
+            if (!drained) {
+                buffer.release();
+            }
         }
+    }
 
-        pipelineOperationThreadThreadLocal.set(new PipelineOperationThread(operation));
+    /**
+     * Activates the {@link PipelineOperationThread} of the current thread
+     *
+     * @param operation that will be passed to the {@link PipelineOperationThread}
+     * @return the context, to be passed to {@link #continueFlow(PipelineOperationThread, Operation, Object)}
+     */
+    PipelineOperationThread startThread(Operation<T> operation) {
+        final PipelineOperationThread context = pipelineOperationThreadThreadLocal.get();
+        if (context.isActive()) {
+            throw new IllegalStateException("The thread has already been started: " + context);
+        }
+        context.start(operation);
+        return context;
     }
 
     /**
-     * Finishes the {@link Pipeline} thread by removing the {@link PipelineOperationThread} from the {@link ThreadLocal}
+     * Finishes the {@link Pipeline} thread, the {@link PipelineOperationThread} is kept in the {@link ThreadLocal} for
+     * the next flow performed by the thread
      */
-    private void finishThread() {
-        pipelineOperationThreadThreadLocal.remove();
+    void finishThread() {
+        pipelineOperationThreadThreadLocal.get().finish();
     }
 
     /**
-     * Increases the "on hold" operations counter in a synchronous manner.
+     * Increases the "on hold" operations counter.
      * Can be used for queuing the objects that require a batch logic to be performed on them (for example persisting in
      * a database). Till the operation is "on hold" the objects could be collected till a threshold is reached and the
      * batch logic along with the required cleanups is performed. The operation has to be resumed later (see {@link #resume()}).
+     *
+     * @deprecated every flow serializes on the hold, use a {@link BatchOperation} instead
      */
+    @Deprecated
     public void hold() {
+        onHold.incrementAndGet();
+    }
+
+    /**
+     * Decreases the "on hold" operations counter.
+     *
+     * @deprecated use a {@link BatchOperation} instead
+     */
+    @Deprecated
+    public void resume() {
+        onHold.decrementAndGet();
+    }
+
+    /**
+     * Waits till there are no operation flows in progress, the flows started meanwhile are waited for as well. Does not
+     * prevent new flows from being started.
+     *
+     * @param timeout maximum time to wait
+     * @param unit    unit of the timeout
+     * @return {@code true} if the pipeline has become quiescent, {@code false} if the timeout has been reached
+     */
+    public boolean awaitQuiescence(final long timeout, final TimeUnit unit) {
         try {
-            semaphore.acquire();
-            onHold.incrementAndGet();
+            startedPipelineFlows.onQuiescence().get(timeout, unit);
+            return true;
+        } catch (TimeoutException e) {
+            return false;
         } catch (InterruptedException e) {
             throw new RuntimeException(e);
-        } finally {
-            semaphore.release();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
         }
     }
 
     /**
-     * Decreases the "on hold" operations counter.
+     * Sets the shutdown flag and returns right away. Once the last started flow has finished, the stages are stopped,
+     * the batches are flushed and every operation is cleaned up exactly once, in the flow order.
+     *
+     * @return a future completed when the cleanup is done, exceptionally if a cleanup has failed
      */
-    public void resume() {
-        onHold.decrementAndGet();
+    public synchronized CompletableFuture<Void> drainAsync() {
+        if (drain == null) {
+            shutdownFlag = true;
+            drain = startedPipelineFlows.onQuiescence().thenRunAsync(this::cleanupAll, task -> {
+                // a separate thread, the last flow might have finished in a stage worker that is about to be stopped
+                final Thread thread = new Thread(task, "pipeline-drain");
+                thread.setDaemon(true);
+                thread.start();
+            });
+        }
+        return drain;
     }
 
     /**
-     * Sets the shutdown flag and initializes the cleanup processes. Also waits for the already scheduled operation flows
-     * to finish as maximum till the timeout is reached.
+     * Sets the shutdown flag and waits for the already started operation flows and the cleanups to finish as maximum
+     * till the timeout is reached. If the timeout is reached, the cleanups are performed once the flows finish.
      */
     public void shutdown() {
-        LOG.info("Shutdown is called, will terminate all remaining operations with the deadline of {} sec.", shutdownTimeout);
-        shutdownFlag = true;
-        final long timeout = System.currentTimeMillis() + shutdownTimeout * 1000;
-        while (onHold.get() > 0 && System.currentTimeMillis() <= timeout) {
-            // force cleanup the operations, each in a separate thread
-            for (Operation<T> op : operations) {
+        LOG.info("Shutdown is called, will wait for the started operation flows with the deadline of {} sec.", shutdownTimeout);
+        try {
+            drainAsync().get(shutdownTimeout, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            LOG.warn("{} operation flows have not finished within the shutdown timeout", startedPipelineFlows.getActive());
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * Stops the stages, flushes the batches and cleans up every operation once. The first failure is rethrown after all
+     * the operations have been processed.
+     */
+    private void cleanupAll() {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(shutdownTimeout);
+        stopStages(deadline);
+        drainBatches(deadline);
+
+        // the operations not reachable from the entry one are cleaned up as well
+        final List<Operation<T>> all = flowOrder();
+        final Set<Operation<T>> reachable = Collections.newSetFromMap(new IdentityHashMap<>());
+        reachable.addAll(all);
+        for (Operation<T> op : operations) {
+            if (reachable.add(op)) {
+                all.add(op);
+            }
+        }
+
+        RuntimeException failure = null;
+        for (Operation<T> op : all) {
+            startThread(op);
+            try {
+                op.cleanup();
+            } catch (RuntimeException e) {
+                try {
+                    handleError(e, op, null);
+                } catch (RuntimeException rethrown) {
+                    if (failure == null) {
+                        failure = rethrown;
+                    }
+                }
+            } finally {
+                finishThread();
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Passes an exception to the error handler and records it in the metrics
+     *
+     * @param e         the exception
+     * @param operation the operation that has failed
+     * @param parameter the processed object, if any
+     */
+    void handleError(final RuntimeException e, final Operation<?> operation, final Object parameter) {
+        final OperationMetrics[] operationMetrics = compiledMetrics;
+        final int index = operation.index;
+        metrics.errorHandled(operationMetrics != null && index >= 0 ? operationMetrics[index] : null);
+        pipelineErrorHandler.handle(e, operation, parameter);
+    }
+
+    /**
+     * Flushes the remaining batches, in the flow order
+     *
+     * @param deadline the deadline of the shutdown, in terms of {@link System#nanoTime()}
+     */
+    private void drainBatches(final long deadline) {
+        for (Operation<T> op : flowOrder()) {
+            if (op instanceof BatchOperation) {
                 startThread(op);
                 try {
-                    op.cleanup();
+                    ((BatchOperation<T>) op).drain(deadline - System.nanoTime());
                 } catch (RuntimeException e) {
-                    pipelineErrorHandler.handle(e, op, null);
+                    handleError(e, op, null);
                 } finally {
                     finishThread();
                 }
             }
-            // wait for the started flows to finish
-            if (startedPipelineFlows.get() > 0) {
-                LockSupport.parkNanos(TimeUnit.SECONDS.toNanos(1));
+        }
+    }
+
+    /**
+     * Stops the stages in the flow order, each stage drains its queue into the downstream ones before it stops
+     *
+     * @param deadline the deadline of the shutdown, in terms of {@link System#nanoTime()}
+     */
+    private void stopStages(final long deadline) {
+        for (Operation<T> op : flowOrder()) {
+            if (op.stage != null) {
+                op.stage.stop();
+                if (!op.stage.awaitTermination(deadline)) {
+                    LOG.warn("Stage of {} has not finished within the shutdown timeout", op);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the operations reachable from the entry one, every operation precedes its downstream operations
+     */
+    private List<Operation<T>> flowOrder() {
+        final LinkedList<Operation<T>> order = new LinkedList<>();
+        final Set<Operation<T>> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        final Deque<Operation<T>> path = new ArrayDeque<>();
+        final Deque<Iterator<Operation<T>>> successors = new ArrayDeque<>();
+        final Operation<T> entry = this.entry;
+        if (entry == null) {
+            return order;
+        }
+        visited.add(entry);
+        path.push(entry);
+        successors.push(successorsOf(entry).iterator());
+        // iterative depth first search, the reversed post-order is a topological order
+        while (!path.isEmpty()) {
+            if (successors.peek().hasNext()) {
+                final Operation<T> next = successors.peek().next();
+                if (visited.add(next)) {
+                    path.push(next);
+                    successors.push(successorsOf(next).iterator());
+                }
+            } else {
+                successors.pop();
+                order.addFirst(path.pop());
+            }
+        }
+        return order;
+    }
+
+    private List<Operation<T>> successorsOf(final Operation<T> operation) {
+        if (operation.fork != null) {
+            return operation.fork.getBranches();
+        }
+        final Operation<T> next = operation.getNextOperation();
+        return next == null ? Collections.emptyList() : Collections.singletonList(next);
+    }
+
+    /**
+     * Performs the flows of a chunk in a single {@link Pipeline} thread, the flows that are not handed over to a stage
+     * are unregistered at once in the end
+     */
+    private class ChunkTask implements Runnable, Consumer<T> {
+
+        private final Operation<T>             first;
+        private final Spliterator<? extends T> chunk;
+        private final long                     size;
+
+        private long                    handedOver;
+        private PipelineOperationThread context;
+
+        private ChunkTask(final Operation<T> first, final Spliterator<? extends T> chunk, final long size) {
+            this.first = first;
+            this.chunk = chunk;
+            this.size = size;
+        }
+
+        @Override
+        public void run() {
+            context = startThread(first);
+            try {
+                chunk.forEachRemaining(this);
+            } finally {
+                finishThread();
+                startedPipelineFlows.end(size - handedOver);
+            }
+        }
+
+        @Override
+        public void accept(final T parameter) {
+            try {
+                if (doExecute(context, first, parameter)) {
+                    handedOver++;
+                }
+            } catch (RuntimeException e) {
+                // rethrown by the error handler, the rest of the chunk is still processed
+                LOG.error("Pipeline flow has failed for {}", parameter, e);
             }
         }
     }
@@ -1,11 +1,26 @@
 package org.jcp.pipeline.base;
 
+/**
+ * The {@link Pipeline} context of a thread. A single instance is kept per thread and reused by all the flows the
+ * thread performs, so starting a flow does not allocate.
+ */
 class PipelineOperationThread {
 
     private Operation currentOperation;
+    private boolean   active;
 
-    PipelineOperationThread(final Operation entry) {
-        reset(entry);
+    void start(final Operation entry) {
+        active = true;
+        currentOperation = entry;
+    }
+
+    void finish() {
+        active = false;
+        currentOperation = null;
+    }
+
+    boolean isActive() {
+        return active;
     }
 
     Operation put(final Operation operation) {
@@ -18,4 +33,7 @@ class PipelineOperationThread {
         currentOperation = operation;
     }
 
+    public String toString() {
+        return "{\"active\":" + active + ", \"currentOperation\":" + currentOperation + "}";
+    }
 }
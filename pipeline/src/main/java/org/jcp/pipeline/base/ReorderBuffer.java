@@ -0,0 +1,173 @@
+package org.jcp.pipeline.base;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Restores the start order of the objects in front of an order sensitive {@link Operation}. Every object carries the
+ * sequence number taken when its flow was started, the objects arriving ahead of their turn are parked in a ring of
+ * slots indexed by the sequence number. The flow that fills the awaited slot becomes the "drainer": it performs the
+ * operation for the consecutive parked objects one after another, the other flows park their object and leave, so no
+ * thread ever blocks in front of the operation.
+ * <p>
+ * The objects that never reach the operation (failed or rejected flows) skip their slot, so the objects behind them
+ * are not held back. The ring bounds the sequence numbers that can be handed out, a flow is not started before its
+ * slot is free (see {@link #awaitRoom(long, long)}), which throttles the producers to the pace of the operation. A
+ * sequence number given up while waiting for its slot is remembered until the drainer reaches it.
+ *
+ * @param <T> the supported type of the object that will be processed.
+ */
+class ReorderBuffer<T> {
+
+    /**
+     * Marks the slot of an object that will not arrive
+     */
+    private static final Object SKIPPED = new Object();
+
+    private final Operation<T> operation;
+    private final Object[]     slots;
+    private final int          ordinal;
+    private final Set<Long>    skippedAhead;
+
+    private long    next;
+    private boolean draining;
+    private int     waiters;
+
+    /**
+     * @param operation the order sensitive operation
+     * @param capacity  maximum number of the objects between the start of the flows and the operation
+     * @param ordinal   position of the buffer among the buffers of the pipeline, in the flow order
+     */
+    ReorderBuffer(final Operation<T> operation, final int capacity, final int ordinal) {
+        this.operation = operation;
+        this.slots = new Object[capacity];
+        this.ordinal = ordinal;
+        this.skippedAhead = new HashSet<>();
+    }
+
+    /**
+     * Parks the object in its slot
+     *
+     * @param sequence the sequence number of the object
+     * @param value    the object
+     * @return {@code true} if the caller has become the drainer and has to {@link #poll()} the objects
+     */
+    synchronized boolean arrive(final long sequence, final T value) {
+        slots[slot(sequence)] = value;
+        return acquire();
+    }
+
+    /**
+     * Releases the slot of an object that will not reach the operation
+     *
+     * @param sequence the sequence number of the object
+     * @return {@code true} if the caller has become the drainer and has to {@link #poll()} the objects
+     */
+    synchronized boolean skip(final long sequence) {
+        if (sequence - next >= slots.length) {
+            // the slot is still taken by an earlier sequence, so the sequence cannot be the next one either
+            skippedAhead.add(sequence);
+            return false;
+        }
+        slots[slot(sequence)] = SKIPPED;
+        return acquire();
+    }
+
+    /**
+     * Takes the next object in the sequence, called by the drainer only. The drainer role is given up once the next
+     * object has not arrived yet.
+     *
+     * @return the object, {@code null} if the next one is not there
+     */
+    @SuppressWarnings("unchecked")
+    synchronized T poll() {
+        while (true) {
+            final int slot = slot(next);
+            final Object value = slots[slot];
+            if (value == null && !isSkippedAhead(next)) {
+                draining = false;
+                return null;
+            }
+            slots[slot] = null;
+            next++;
+            if (waiters > 0) {
+                notifyAll();
+            }
+            if (value != SKIPPED && value != null) {
+                return (T) value;
+            }
+        }
+    }
+
+    /**
+     * Gives up the drainer role without taking the remaining objects, the next arrival takes it over
+     */
+    synchronized void release() {
+        draining = false;
+    }
+
+    /**
+     * Waits till the slot of the sequence number is free
+     *
+     * @param sequence     the sequence number to be handed out
+     * @param timeoutNanos maximum time to wait, negative to wait as long as required
+     * @return whether the slot is free
+     */
+    synchronized boolean awaitRoom(final long sequence, final long timeoutNanos) {
+        final long deadline = System.nanoTime() + timeoutNanos;
+        waiters++;
+        try {
+            while (sequence - next >= slots.length) {
+                if (timeoutNanos < 0) {
+                    wait();
+                } else {
+                    final long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                }
+            }
+            return true;
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        } finally {
+            waiters--;
+        }
+    }
+
+    /**
+     * @return the sequence number of the next object to be passed to the operation
+     */
+    synchronized long getNext() {
+        return next;
+    }
+
+    Operation<T> getOperation() {
+        return operation;
+    }
+
+    int getOrdinal() {
+        return ordinal;
+    }
+
+    private boolean acquire() {
+        if (draining || slots[slot(next)] == null && (skippedAhead.isEmpty() || !skippedAhead.contains(next))) {
+            return false;
+        }
+        draining = true;
+        return true;
+    }
+
+    /**
+     * Forgets the sequence if it has been skipped before it got its slot
+     */
+    private boolean isSkippedAhead(final long sequence) {
+        return !skippedAhead.isEmpty() && skippedAhead.remove(sequence);
+    }
+
+    private int slot(final long sequence) {
+        return (int) (sequence % slots.length);
+    }
+}
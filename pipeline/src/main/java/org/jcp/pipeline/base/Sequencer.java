@@ -0,0 +1,118 @@
+package org.jcp.pipeline.base;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out the sequence numbers of the ordered mode (see {@link Pipeline#configureOrdering(Operation, int)}) and keeps
+ * them for the objects in progress. The objects are tracked by their identity, so the same instance must not be
+ * started again before its flow has finished. The numbers are taken without a lock, every caller then waits for the
+ * room in the reorder buffers on its own, so a caller with a short timeout is never held by one waiting longer.
+ *
+ * @param <T> the supported type of the object that will be processed.
+ */
+class Sequencer<T> {
+
+    private final ReorderBuffer<T>[]                buffers;
+    private final ConcurrentMap<Identity, Sequence> sequences;
+
+    private final AtomicLong                        nextSequence;
+
+    /**
+     * @param buffers the reorder buffers of the pipeline, in the flow order
+     */
+    Sequencer(final ReorderBuffer<T>[] buffers) {
+        this.buffers = buffers;
+        this.sequences = new ConcurrentHashMap<>();
+        this.nextSequence = new AtomicLong();
+    }
+
+    /**
+     * Assigns the next sequence number to the object, the numbers are handed out in the order of the calls. A number
+     * that is not used has to be skipped, see {@link #remove(Object)}. The flow has to be admitted before, so that the
+     * objects started later cannot take all the flow slots while waiting in the reorder buffers for an object that
+     * cannot be admitted.
+     *
+     * @param value the object being started
+     * @return the sequence
+     * @throws IllegalStateException if the object is already in progress
+     */
+    Sequence assign(final T value) {
+        final Sequence sequence = new Sequence();
+        if (sequences.putIfAbsent(new Identity(value), sequence) != null) {
+            throw new IllegalStateException("The object is already in progress: " + value);
+        }
+        sequence.value = nextSequence.getAndIncrement();
+        return sequence;
+    }
+
+    /**
+     * Waits till every reorder buffer has room for the sequence, the earlier sequences get their room first
+     *
+     * @param sequence     the sequence assigned to the object being started
+     * @param timeoutNanos maximum time to wait, negative to wait as long as required
+     * @return {@code false} if the timeout has been reached
+     */
+    boolean awaitRoom(final Sequence sequence, final long timeoutNanos) {
+        final long deadline = System.nanoTime() + timeoutNanos;
+        for (final ReorderBuffer<T> buffer : buffers) {
+            if (!buffer.awaitRoom(sequence.value, remaining(timeoutNanos, deadline))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parks the object in front of the ordered operation
+     *
+     * @param buffer the reorder buffer of the operation reached
+     * @param value  the object
+     * @return {@code true} if the caller has become the drainer of the buffer
+     */
+    boolean arrive(final ReorderBuffer<T> buffer, final T value) {
+        final Identity key = new Identity(value);
+        final boolean last = buffer.getOrdinal() == buffers.length - 1;
+        final Sequence sequence = last ? sequences.remove(key) : sequences.get(key);
+        if (sequence == null) {
+            throw new IllegalStateException("The object has not been started in the ordered mode: " + value);
+        }
+        sequence.passed = buffer.getOrdinal() + 1;
+        return buffer.arrive(sequence.value, value);
+    }
+
+    /**
+     * Forgets the object that will not reach the remaining ordered operations
+     *
+     * @param value the object
+     * @return the sequence, {@code null} if the object is not tracked (anymore)
+     */
+    Sequence remove(final T value) {
+        return sequences.remove(new Identity(value));
+    }
+
+    private static long remaining(final long timeoutNanos, final long deadline) {
+        return timeoutNanos < 0 ? -1 : Math.max(0, deadline - System.nanoTime());
+    }
+
+    ReorderBuffer<T>[] getBuffers() {
+        return buffers;
+    }
+
+    /**
+     * The sequence number of an object along with the number of the ordered operations it has passed
+     */
+    static class Sequence {
+        private long         value;
+        private volatile int passed;
+
+        long getValue() {
+            return value;
+        }
+
+        int getPassed() {
+            return passed;
+        }
+    }
+}
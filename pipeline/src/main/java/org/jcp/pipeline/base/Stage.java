@@ -0,0 +1,330 @@
+package org.jcp.pipeline.base;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.function.ToIntFunction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A SEDA stage: a bounded queue in front of an {@link Operation} served by a dedicated set of worker threads. The
+ * objects reaching a staged operation are handed over to its queue instead of being processed by the current thread,
+ * so that the stages run concurrently and each one can be given as many threads as its operation requires. A full
+ * queue blocks the producing side, which propagates the backpressure to the upstream stages.
+ * <p>
+ * A partitioned stage has a queue per partition, each one is served by a single worker, and the objects are routed to
+ * the partitions by a partitioner (see {@link KeyedOperation}), so the objects of a partition are always processed by
+ * the same thread. The worker of a partition calls the stop callback of the stage once it has processed the last
+ * queued object, so the partition state can be finished by its owner.
+ *
+ * @param <T> the supported type of the object that will be processed.
+ */
+class Stage<T> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(Stage.class);
+
+    /**
+     * Poison pill, retires the worker that takes it
+     */
+    private static final Object STOP = new Object();
+
+    /**
+     * Wakes up an idle worker, so that it notices a pending retirement
+     */
+    private static final Object RETIRE = new Object();
+
+    private static final AtomicInteger STAGE_COUNTER = new AtomicInteger();
+
+    private final Pipeline<T>             pipeline;
+    private final Operation<T>            operation;
+    private final BlockingQueue<Object>[] queues;
+    private final ToIntFunction<T>        partitioner;
+    private final IntConsumer             onStop;
+    private final List<Thread>            workers;
+    private final AtomicInteger           retiring;
+    private final String                  name;
+
+    private volatile boolean stopped;
+    private int              started;
+
+    /**
+     * Creates a stage, the workers are not started yet
+     *
+     * @param pipeline      the pipeline that runs the flows
+     * @param operation     the first operation performed by the stage workers
+     * @param queueCapacity the maximum number of waiting objects
+     */
+    Stage(final Pipeline<T> pipeline, final Operation<T> operation, final int queueCapacity) {
+        this(pipeline, operation, queueCapacity, 1, null, null);
+    }
+
+    /**
+     * Creates a stage with a queue per partition, the workers are not started yet
+     *
+     * @param pipeline      the pipeline that runs the flows
+     * @param operation     the first operation performed by the stage workers
+     * @param queueCapacity the maximum number of waiting objects per partition
+     * @param partitions    number of the partitions
+     * @param partitioner   returns the partition of an object, {@code null} for a single shared queue
+     * @param onStop        called by the worker of a partition with the partition index once it has taken the stop
+     *                      pill, {@code null} if nothing has to be done
+     */
+    @SuppressWarnings("unchecked")
+    Stage(final Pipeline<T> pipeline,
+          final Operation<T> operation,
+          final int queueCapacity,
+          final int partitions,
+          final ToIntFunction<T> partitioner,
+          final IntConsumer onStop) {
+        this.pipeline = pipeline;
+        this.operation = operation;
+        this.queues = new BlockingQueue[partitions];
+        for (int i = 0; i < partitions; i++) {
+            queues[i] = new ArrayBlockingQueue<>(queueCapacity);
+        }
+        this.partitioner = partitioner;
+        this.onStop = onStop;
+        this.workers = new ArrayList<>();
+        this.retiring = new AtomicInteger();
+        this.name = "pipeline-stage-" + STAGE_COUNTER.getAndIncrement() + "-" + operation.getClass().getSimpleName();
+    }
+
+    /**
+     * Starts additional worker threads, the workers of a partitioned stage are assigned to the partitions in turn
+     *
+     * @param count number of the workers to start
+     */
+    synchronized void startWorkers(final int count) {
+        if (stopped) {
+            throw new IllegalStateException("The stage of " + operation + " has been stopped");
+        }
+        workers.removeIf(worker -> !worker.isAlive());
+        for (int i = 0; i < count; i++) {
+            final int partition = started % queues.length;
+            final Thread worker = new Thread(() -> work(partition), name + "-" + started++);
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    /**
+     * @return number of the partitions, 1 if the stage is not partitioned
+     */
+    int getPartitions() {
+        return queues.length;
+    }
+
+    /**
+     * Lets a number of workers terminate once they have finished their current objects, the queued objects are left
+     * for the remaining workers. Not supported by the partitioned stages, every partition has a single worker.
+     *
+     * @param count number of the workers to retire
+     */
+    synchronized void retireWorkers(final int count) {
+        if (partitioner != null) {
+            throw new IllegalStateException("The workers of a partitioned stage cannot be retired: " + operation);
+        }
+        retiring.addAndGet(count);
+        for (int i = 0; i < count; i++) {
+            // an idle worker is blocked on the queue, a busy one notices the retirement after its object
+            queues[0].offer(RETIRE);
+        }
+    }
+
+    /**
+     * @return number of the running workers, not counting the ones being retired
+     */
+    synchronized int getWorkerCount() {
+        int alive = 0;
+        for (final Thread worker : workers) {
+            if (worker.isAlive()) {
+                alive++;
+            }
+        }
+        return Math.max(0, alive - retiring.get());
+    }
+
+    /**
+     * Hands the object over to the stage, blocks while the queue is full
+     *
+     * @param value the object to be processed by the stage
+     */
+    void enqueue(final T value) {
+        if (stopped) {
+            throw new IllegalStateException("The stage of " + operation + " has been stopped");
+        }
+        try {
+            queueOf(value).put(value);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Hands the object over to the stage if the queue is not full
+     *
+     * @param value the object to be processed by the stage
+     * @return whether the object has been queued
+     */
+    boolean offer(final T value) {
+        if (stopped) {
+            throw new IllegalStateException("The stage of " + operation + " has been stopped");
+        }
+        return queueOf(value).offer(value);
+    }
+
+    /**
+     * Lets the workers finish the already queued objects and stop
+     */
+    synchronized void stop() {
+        stopped = true;
+        // counted upfront, any worker may take a pill and terminate before the next one is put
+        final int[] alive = new int[queues.length];
+        for (int i = 0; i < workers.size(); i++) {
+            if (workers.get(i).isAlive()) {
+                alive[i % queues.length]++;
+            }
+        }
+        try {
+            for (int i = 0; i < queues.length; i++) {
+                for (int j = 0; j < alive[i]; j++) {
+                    queues[i].put(STOP);
+                }
+            }
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Waits for the workers to stop
+     *
+     * @param deadline the {@link System#nanoTime()} based deadline
+     * @return whether all the workers have stopped
+     */
+    boolean awaitTermination(final long deadline) {
+        final List<Thread> snapshot;
+        synchronized (this) {
+            snapshot = new ArrayList<>(workers);
+        }
+        try {
+            for (final Thread worker : snapshot) {
+                final long remaining = deadline - System.nanoTime();
+                if (remaining > 0) {
+                    TimeUnit.NANOSECONDS.timedJoin(worker, remaining);
+                }
+                if (worker.isAlive()) {
+                    return false;
+                }
+            }
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+        return true;
+    }
+
+    /**
+     * @return number of the objects waiting in the queue
+     */
+    int getQueueSize() {
+        int size = 0;
+        for (final BlockingQueue<Object> queue : queues) {
+            size += queue.size();
+        }
+        return size;
+    }
+
+    /**
+     * @return whether the stage has been stopped
+     */
+    boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * @return whether the objects are routed to the partitions
+     */
+    boolean isPartitioned() {
+        return partitioner != null;
+    }
+
+    Operation<T> getOperation() {
+        return operation;
+    }
+
+    /**
+     * Claims a pending retirement
+     *
+     * @return {@code true} if the calling worker has to terminate
+     */
+    private boolean retire() {
+        int pending;
+        while ((pending = retiring.get()) > 0) {
+            if (retiring.compareAndSet(pending, pending - 1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Calls the stop callback, a failure is passed to the error handler
+     */
+    private void stopped(final int partition) {
+        if (onStop == null) {
+            return;
+        }
+        try {
+            onStop.accept(partition);
+        } catch (RuntimeException e) {
+            try {
+                pipeline.handleError(e, operation, null);
+            } catch (RuntimeException rethrown) {
+                LOG.error("Stop of the partition {} of {} has failed", partition, operation, rethrown);
+            }
+        }
+    }
+
+    private BlockingQueue<Object> queueOf(final T value) {
+        return partitioner == null ? queues[0] : queues[partitioner.applyAsInt(value)];
+    }
+
+    /**
+     * The worker loop, the {@link Pipeline} thread context is kept for the whole worker life time
+     *
+     * @param partition index of the queue served by the worker
+     */
+    @SuppressWarnings("unchecked")
+    private void work(final int partition) {
+        final BlockingQueue<Object> queue = queues[partition];
+        final PipelineOperationThread context = pipeline.startThread(operation);
+        try {
+            while (!retire()) {
+                final Object value = queue.take();
+                if (value == STOP) {
+                    stopped(partition);
+                    return;
+                }
+                if (value == RETIRE) {
+                    continue;
+                }
+                try {
+                    pipeline.continueFlow(context, operation, (T) value);
+                } catch (RuntimeException e) {
+                    LOG.error("Pipeline flow has failed in the stage of {}", operation, e);
+                }
+            }
+        } catch (InterruptedException e) {
+            LOG.warn("Stage worker of {} has been interrupted", operation);
+        } finally {
+            pipeline.finishThread();
+        }
+    }
+}
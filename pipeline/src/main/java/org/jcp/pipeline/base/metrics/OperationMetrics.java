@@ -0,0 +1,140 @@
+package org.jcp.pipeline.base.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import org.jcp.metrics.HistogramSnapshot;
+import org.jcp.metrics.LatencyHistogram;
+
+/**
+ * Instrumentation of a single {@link org.jcp.pipeline.base.Operation}. The counters are striped ({@link LongAdder})
+ * and the histograms are lock-free, so the recording does not serialize the flows. The counters only grow, the rates
+ * are derived by the readers, e.g. by {@link OperationMetricsSnapshot#getThroughput(OperationMetricsSnapshot)}, so
+ * any number of them can read the metrics without affecting each other.
+ */
+public class OperationMetrics implements OperationMetricsMXBean {
+
+    private final String           name;
+    private final LatencyHistogram latency;
+    private final LatencyHistogram queueWait;
+    private final LongAdder        started;
+    private final LongAdder        performed;
+    private final LongAdder        failed;
+    private final LongAdder        errors;
+    private final LongAdder        busy;
+
+    /**
+     * @param name the operation name, unique within the pipeline
+     */
+    public OperationMetrics(final String name) {
+        this.name = name;
+        this.latency = new LatencyHistogram();
+        this.queueWait = new LatencyHistogram();
+        this.started = new LongAdder();
+        this.performed = new LongAdder();
+        this.failed = new LongAdder();
+        this.errors = new LongAdder();
+        this.busy = new LongAdder();
+    }
+
+    /**
+     * Records the processing start of an object
+     *
+     * @return the start timestamp, to be passed to {@link #performed(long)} or {@link #failed(long)}
+     */
+    public long started() {
+        started.increment();
+        return System.nanoTime();
+    }
+
+    /**
+     * Records a successfully processed object
+     *
+     * @param startNanos the value returned by {@link #started()}
+     */
+    public void performed(final long startNanos) {
+        final long elapsed = System.nanoTime() - startNanos;
+        latency.record(elapsed);
+        busy.add(elapsed);
+        performed.increment();
+    }
+
+    /**
+     * Records an object which processing has thrown an exception
+     *
+     * @param startNanos the value returned by {@link #started()}
+     */
+    public void failed(final long startNanos) {
+        final long elapsed = System.nanoTime() - startNanos;
+        latency.record(elapsed);
+        busy.add(elapsed);
+        failed.increment();
+    }
+
+    /**
+     * Records an error handler invocation
+     */
+    public void errorHandled() {
+        errors.increment();
+    }
+
+    /**
+     * Records the time a flow has waited to hand the object over to the stage queue in front of the operation
+     *
+     * @param startNanos the {@link System#nanoTime()} reading taken before the object was queued
+     */
+    public void enqueued(final long startNanos) {
+        queueWait.recordSince(startNanos);
+    }
+
+    /**
+     * Takes a point-in-time copy of the metrics
+     *
+     * @return the snapshot
+     */
+    public OperationMetricsSnapshot snapshot() {
+        return new OperationMetricsSnapshot(name, System.nanoTime(), getPerformed(), getFailed(), getErrors(), getActive(),
+                getLatency(), getQueueWait());
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getPerformed() {
+        return performed.sum();
+    }
+
+    @Override
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public long getBusyTime() {
+        return busy.sum();
+    }
+
+    @Override
+    public long getActive() {
+        // read the "later" counters first, so that the gauge never goes negative
+        final long completed = performed.sum() + failed.sum();
+        return Math.max(0, started.sum() - completed);
+    }
+
+    @Override
+    public HistogramSnapshot getLatency() {
+        return latency.snapshot();
+    }
+
+    @Override
+    public HistogramSnapshot getQueueWait() {
+        return queueWait.snapshot();
+    }
+}
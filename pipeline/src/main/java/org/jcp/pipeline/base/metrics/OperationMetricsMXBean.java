@@ -0,0 +1,52 @@
+package org.jcp.pipeline.base.metrics;
+
+import org.jcp.metrics.HistogramSnapshot;
+
+/**
+ * JMX view of the {@link OperationMetrics}. All the durations are reported in nanoseconds. The counters are monotonic,
+ * the monitoring tool derives the rates from them.
+ */
+public interface OperationMetricsMXBean {
+
+    /**
+     * @return the operation name, unique within the pipeline
+     */
+    String getName();
+
+    /**
+     * @return number of the objects processed successfully
+     */
+    long getPerformed();
+
+    /**
+     * @return number of the objects which processing has thrown an exception
+     */
+    long getFailed();
+
+    /**
+     * @return number of the {@link org.jcp.pipeline.base.exception.PipelineErrorHandler} invocations for the operation
+     */
+    long getErrors();
+
+    /**
+     * @return total time spent processing the objects, the increase over an interval divided by the interval is the
+     * number of threads kept busy by the operation
+     */
+    long getBusyTime();
+
+    /**
+     * @return number of the objects being processed at the moment
+     */
+    long getActive();
+
+    /**
+     * @return duration distribution of the {@link org.jcp.pipeline.base.Operation#doPerform(Object)} calls
+     */
+    HistogramSnapshot getLatency();
+
+    /**
+     * @return distribution of the time the flows wait to hand the object over to the stage queue in front of the
+     * operation, i.e. the backpressure of a full queue
+     */
+    HistogramSnapshot getQueueWait();
+}
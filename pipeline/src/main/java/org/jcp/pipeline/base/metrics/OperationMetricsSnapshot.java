@@ -0,0 +1,86 @@
+package org.jcp.pipeline.base.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jcp.metrics.HistogramSnapshot;
+
+/**
+ * An immutable copy of the {@link OperationMetrics}
+ */
+public class OperationMetricsSnapshot {
+
+    private final String            name;
+    private final long              timestampNanos;
+    private final long              performed;
+    private final long              failed;
+    private final long              errors;
+    private final long              active;
+    private final HistogramSnapshot latency;
+    private final HistogramSnapshot queueWait;
+
+    OperationMetricsSnapshot(final String name,
+            final long timestampNanos,
+            final long performed,
+            final long failed,
+            final long errors,
+            final long active,
+            final HistogramSnapshot latency,
+            final HistogramSnapshot queueWait) {
+        this.name = name;
+        this.timestampNanos = timestampNanos;
+        this.performed = performed;
+        this.failed = failed;
+        this.errors = errors;
+        this.active = active;
+        this.latency = latency;
+        this.queueWait = queueWait;
+    }
+
+    /**
+     * Calculates the throughput between two snapshots of the same operation
+     *
+     * @param previous the earlier snapshot
+     * @return processed objects per second
+     */
+    public double getThroughput(final OperationMetricsSnapshot previous) {
+        final long elapsed = timestampNanos - previous.timestampNanos;
+        return elapsed > 0 ? (performed - previous.performed) * (double) TimeUnit.SECONDS.toNanos(1) / elapsed : 0;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getTimestampNanos() {
+        return timestampNanos;
+    }
+
+    public long getPerformed() {
+        return performed;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    public long getActive() {
+        return active;
+    }
+
+    public HistogramSnapshot getLatency() {
+        return latency;
+    }
+
+    public HistogramSnapshot getQueueWait() {
+        return queueWait;
+    }
+
+    public String toString() {
+        return "{\"name\":\"" + name + "\", \"performed\":" + performed + ", \"failed\":" + failed + ", \"errors\":" + errors
+                + ", \"active\":" + active + ", \"latency\":" + latency + ", \"queueWait\":" + queueWait + "}";
+    }
+}
@@ -0,0 +1,113 @@
+package org.jcp.pipeline.base.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import javax.management.ObjectName;
+
+import org.jcp.metrics.JmxSupport;
+
+/**
+ * Instrumentation of a {@link org.jcp.pipeline.base.Pipeline}: the pipeline wide gauges along with the
+ * {@link OperationMetrics} of every operation. Cheap enough to be always on, the recording consists of a couple of
+ * {@link System#nanoTime()} calls and striped counter updates per operation.
+ */
+public class PipelineMetrics implements PipelineMetricsMXBean {
+
+    private final LongSupplier           inFlight;
+    private final LongSupplier           onHold;
+    private final LongAdder              errors;
+    private final List<OperationMetrics> operations;
+
+    /**
+     * @param inFlight reads the number of the flows in progress
+     * @param onHold   reads the number of the operations "on hold"
+     */
+    public PipelineMetrics(final LongSupplier inFlight, final LongSupplier onHold) {
+        this.inFlight = inFlight;
+        this.onHold = onHold;
+        this.errors = new LongAdder();
+        this.operations = new CopyOnWriteArrayList<>();
+    }
+
+    /**
+     * Creates the metrics of an operation
+     *
+     * @param name the operation name, unique within the pipeline
+     * @return the operation metrics
+     */
+    public OperationMetrics addOperation(final String name) {
+        final OperationMetrics metrics = new OperationMetrics(name);
+        operations.add(metrics);
+        return metrics;
+    }
+
+    /**
+     * Records an error handler invocation
+     *
+     * @param operation the metrics of the failed operation, {@code null} if unknown
+     */
+    public void errorHandled(final OperationMetrics operation) {
+        errors.increment();
+        if (operation != null) {
+            operation.errorHandled();
+        }
+    }
+
+    /**
+     * @return the metrics of the operations in the flow order
+     */
+    public List<OperationMetrics> getOperations() {
+        return Collections.unmodifiableList(operations);
+    }
+
+    /**
+     * Takes a point-in-time copy of all the metrics
+     *
+     * @return the snapshot
+     */
+    public PipelineMetricsSnapshot snapshot() {
+        final List<OperationMetricsSnapshot> snapshots = new ArrayList<>(operations.size());
+        for (final OperationMetrics operation : operations) {
+            snapshots.add(operation.snapshot());
+        }
+        return new PipelineMetricsSnapshot(getInFlight(), getOnHold(), getErrors(), snapshots);
+    }
+
+    /**
+     * Exposes the metrics via JMX under {@code org.jcp.pipeline:type=PipelineMetrics,name=<name>} and the operation
+     * metrics under {@code org.jcp.pipeline:type=OperationMetrics,pipeline=<name>,name=<operation>}. The operations
+     * are known once the pipeline is compiled.
+     *
+     * @param name distinguishes the pipeline from the others within the JVM
+     * @return the registered {@link ObjectName}s, required for unregistering
+     */
+    public List<ObjectName> registerMBeans(final String name) {
+        final List<ObjectName> names = new ArrayList<>();
+        names.add(JmxSupport.register(this, "org.jcp.pipeline:type=PipelineMetrics,name=" + ObjectName.quote(name)));
+        for (final OperationMetrics operation : operations) {
+            names.add(JmxSupport.register(operation, "org.jcp.pipeline:type=OperationMetrics,pipeline=" + ObjectName.quote(name)
+                    + ",name=" + ObjectName.quote(operation.getName())));
+        }
+        return names;
+    }
+
+    @Override
+    public long getInFlight() {
+        return inFlight.getAsLong();
+    }
+
+    @Override
+    public long getOnHold() {
+        return onHold.getAsLong();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+}
@@ -0,0 +1,22 @@
+package org.jcp.pipeline.base.metrics;
+
+/**
+ * JMX view of the {@link PipelineMetrics}, the operations are exposed by their own {@link OperationMetricsMXBean}s
+ */
+public interface PipelineMetricsMXBean {
+
+    /**
+     * @return number of the flows in progress, including the ones waiting in the stage queues
+     */
+    long getInFlight();
+
+    /**
+     * @return number of the operations "on hold"
+     */
+    long getOnHold();
+
+    /**
+     * @return total number of the {@link org.jcp.pipeline.base.exception.PipelineErrorHandler} invocations
+     */
+    long getErrors();
+}
@@ -0,0 +1,59 @@
+package org.jcp.pipeline.base.metrics;
+
+import java.util.List;
+
+/**
+ * An immutable copy of the {@link PipelineMetrics}
+ */
+public class PipelineMetricsSnapshot {
+
+    private final long                           inFlight;
+    private final long                           onHold;
+    private final long                           errors;
+    private final List<OperationMetricsSnapshot> operations;
+
+    PipelineMetricsSnapshot(final long inFlight, final long onHold, final long errors,
+            final List<OperationMetricsSnapshot> operations) {
+        this.inFlight = inFlight;
+        this.onHold = onHold;
+        this.errors = errors;
+        this.operations = operations;
+    }
+
+    public long getInFlight() {
+        return inFlight;
+    }
+
+    public long getOnHold() {
+        return onHold;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    /**
+     * @return the operation snapshots in the flow order
+     */
+    public List<OperationMetricsSnapshot> getOperations() {
+        return operations;
+    }
+
+    /**
+     * @param name the operation name
+     * @return the snapshot of the operation, {@code null} if there is no such operation
+     */
+    public OperationMetricsSnapshot getOperation(final String name) {
+        for (final OperationMetricsSnapshot operation : operations) {
+            if (operation.getName().equals(name)) {
+                return operation;
+            }
+        }
+        return null;
+    }
+
+    public String toString() {
+        return "{\"inFlight\":" + inFlight + ", \"onHold\":" + onHold + ", \"errors\":" + errors + ", \"operations\":"
+                + operations + "}";
+    }
+}
@@ -0,0 +1,158 @@
+package org.jcp.pipeline.base.impl;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jcp.pipeline.base.Operation;
+import org.jcp.pipeline.base.Pipeline;
+import org.jcp.pipeline.base.impl.model.TestEntity;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AdmissionTest {
+
+    private ThreadPoolExecutor   executor;
+    private AtomicInteger        rejected;
+    private Pipeline<TestEntity> pipeline;
+    private CountDownLatch       release;
+    private BlockingOperation    operation;
+
+    @Before
+    public void before() {
+        // rejects everything beyond 2 running and 4 queued tasks, a finished flow still occupies its thread for a moment
+        rejected = new AtomicInteger();
+        executor = new ThreadPoolExecutor(2, 2, 1, TimeUnit.MINUTES, new ArrayBlockingQueue<>(4), (r, e) -> {
+            rejected.incrementAndGet();
+            throw new RejectedExecutionException();
+        });
+        pipeline = new Pipeline<>(executor, (e, operation, parameter) -> {
+            throw e;
+        }, 60, 4);
+        release = new CountDownLatch(1);
+        operation = new BlockingOperation(pipeline, release);
+        pipeline.setEntryOperation(operation);
+    }
+
+    @After
+    public void after() {
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testTryStart() {
+        for (int i = 0; i < 4; i++) {
+            Assert.assertTrue(pipeline.tryStart(new TestEntity(i, "admitted")));
+        }
+        Assert.assertFalse(pipeline.tryStart(new TestEntity(4, "rejected")));
+        Assert.assertFalse(pipeline.tryStart(new TestEntity(5, "rejected"), 20, TimeUnit.MILLISECONDS));
+        Assert.assertEquals(4, pipeline.getInFlight());
+
+        release.countDown();
+        Assert.assertTrue(pipeline.tryStart(new TestEntity(6, "admitted"), 5, TimeUnit.SECONDS));
+        Assert.assertTrue(pipeline.awaitQuiescence(5, TimeUnit.SECONDS));
+        Assert.assertEquals(5, operation.performed.get());
+    }
+
+    @Test
+    public void testStartBlocksInsteadOfLosingItems() throws InterruptedException {
+        final Thread producer = new Thread(() -> {
+            for (int i = 0; i < 100; i++) {
+                pipeline.start(new TestEntity(i, "blocking"));
+            }
+        });
+        producer.start();
+
+        producer.join(200);
+        Assert.assertTrue(producer.isAlive());
+        Assert.assertEquals(4, pipeline.getInFlight());
+
+        release.countDown();
+        producer.join(5000);
+        Assert.assertFalse(producer.isAlive());
+        pipeline.shutdown();
+        Assert.assertEquals(100, operation.performed.get());
+        Assert.assertEquals(0, rejected.get());
+    }
+
+    @Test
+    public void testInterruptedStartKeepsTheInterruptStatus() throws InterruptedException {
+        for (int i = 0; i < 4; i++) {
+            pipeline.start(new TestEntity(i, "admitted"));
+        }
+        final AtomicBoolean interrupted = new AtomicBoolean();
+        final Thread caller = new Thread(() -> {
+            try {
+                pipeline.start(new TestEntity(4, "interrupted"));
+            } catch (RuntimeException e) {
+                interrupted.set(e.getCause() instanceof InterruptedException && Thread.currentThread().isInterrupted());
+            }
+        });
+        caller.start();
+        caller.join(100);
+        caller.interrupt();
+        caller.join(5000);
+
+        Assert.assertTrue(interrupted.get());
+        Assert.assertEquals(4, pipeline.getInFlight());
+        release.countDown();
+        pipeline.shutdown();
+        Assert.assertEquals(4, operation.performed.get());
+    }
+
+    @Test
+    public void testStartOrRun() throws InterruptedException {
+        for (int i = 0; i < 4; i++) {
+            pipeline.start(new TestEntity(i, "admitted"));
+        }
+        final Thread caller = new Thread(() -> pipeline.startOrRun(new TestEntity(4, "caller")), "caller");
+        caller.start();
+
+        // the flow is performed by the caller beyond the limit
+        caller.join(200);
+        Assert.assertTrue(caller.isAlive());
+        Assert.assertEquals(5, pipeline.getInFlight());
+
+        release.countDown();
+        caller.join(5000);
+        pipeline.shutdown();
+        Assert.assertEquals(5, operation.performed.get());
+        Assert.assertEquals(1, operation.callerRuns.get());
+    }
+
+    private static class BlockingOperation extends Operation<TestEntity> {
+
+        private final AtomicInteger  performed  = new AtomicInteger();
+        private final AtomicInteger  callerRuns = new AtomicInteger();
+        private final CountDownLatch release;
+
+        private BlockingOperation(final Pipeline<TestEntity> pipeline, final CountDownLatch release) {
+            super(pipeline, null);
+            this.release = release;
+        }
+
+        @Override
+        protected void doPerform(final TestEntity value) {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            if ("caller".equals(Thread.currentThread().getName())) {
+                callerRuns.incrementAndGet();
+            }
+            performed.incrementAndGet();
+        }
+
+        @Override
+        public void cleanup() {
+        }
+    }
+}
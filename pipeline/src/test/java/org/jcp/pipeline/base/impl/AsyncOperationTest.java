@@ -0,0 +1,133 @@
+package org.jcp.pipeline.base.impl;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jcp.pipeline.base.AsyncOperation;
+import org.jcp.pipeline.base.Operation;
+import org.jcp.pipeline.base.Pipeline;
+import org.jcp.pipeline.base.impl.model.TestEntity;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AsyncOperationTest {
+
+    private ExecutorService               executor;
+    private ScheduledExecutorService      remote;
+    private ConcurrentLinkedQueue<Object> failed;
+    private Pipeline<TestEntity>          pipeline;
+
+    @Before
+    public void before() {
+        executor = Executors.newFixedThreadPool(2);
+        // completes the "remote calls"
+        remote = Executors.newSingleThreadScheduledExecutor();
+        failed = new ConcurrentLinkedQueue<>();
+        pipeline = new Pipeline<>(executor, (e, operation, parameter) -> failed.add(parameter), 60, 1000);
+    }
+
+    @After
+    public void after() {
+        executor.shutdownNow();
+        remote.shutdownNow();
+    }
+
+    @Test
+    public void testOutstandingCallsDoNotHoldThreads() {
+        final CountingOperation last = new CountingOperation(pipeline, null);
+        final RemoteOperation call = new RemoteOperation(pipeline, last, 20);
+        pipeline.setEntryOperation(call);
+
+        for (int i = 0; i < 500; i++) {
+            pipeline.start(new TestEntity(i, "async"));
+        }
+        Assert.assertTrue(pipeline.awaitQuiescence(10, TimeUnit.SECONDS));
+
+        Assert.assertEquals(500, last.performed.get());
+        Assert.assertTrue(failed.isEmpty());
+        // far more calls than the executor threads have been in progress at once
+        Assert.assertTrue(call.maxOutstanding.get() > 2);
+        Assert.assertEquals(0, pipeline.getInFlight());
+        pipeline.shutdown();
+    }
+
+    @Test
+    public void testFailedCompletionIsHandled() {
+        final CountingOperation last = new CountingOperation(pipeline, null);
+        final RemoteOperation call = new RemoteOperation(pipeline, last, 1);
+        pipeline.setEntryOperation(call);
+
+        for (int i = 0; i < 100; i++) {
+            pipeline.start(new TestEntity(i, i % 4 == 0 ? "fail" : "async"));
+        }
+        Assert.assertTrue(pipeline.awaitQuiescence(10, TimeUnit.SECONDS));
+
+        Assert.assertEquals(75, last.performed.get());
+        Assert.assertEquals(25, failed.size());
+        Assert.assertEquals(25, pipeline.getMetrics().snapshot().getOperation("RemoteOperation-0").getFailed());
+        pipeline.shutdown();
+    }
+
+    @Test
+    public void testCompletedStageContinuesInline() {
+        final CountingOperation last = new CountingOperation(pipeline, null);
+        final RemoteOperation call = new RemoteOperation(pipeline, last, 0);
+        pipeline.setEntryOperation(call);
+
+        pipeline.start(new TestEntity(1, "inline"));
+        Assert.assertTrue(pipeline.awaitQuiescence(10, TimeUnit.SECONDS));
+
+        Assert.assertEquals(1, last.performed.get());
+        Assert.assertEquals(call.thread, last.thread);
+        pipeline.shutdown();
+    }
+
+    /**
+     * Completes after the delay in the "remote" thread, the objects described as "fail" are completed exceptionally
+     */
+    private class RemoteOperation extends AsyncOperation<TestEntity> {
+
+        private final AtomicInteger outstanding    = new AtomicInteger();
+        private final AtomicInteger maxOutstanding = new AtomicInteger();
+        private final long          delayMillis;
+
+        private volatile Thread thread;
+
+        private RemoteOperation(final Pipeline<TestEntity> pipeline, final Operation<TestEntity> next, final long delayMillis) {
+            super(pipeline, next);
+            this.delayMillis = delayMillis;
+        }
+
+        @Override
+        protected CompletionStage<Void> doPerformAsync(final TestEntity value) {
+            thread = Thread.currentThread();
+            if (delayMillis == 0) {
+                return CompletableFuture.completedFuture(null);
+            }
+            final int current = outstanding.incrementAndGet();
+            maxOutstanding.accumulateAndGet(current, Math::max);
+            final CompletableFuture<Void> response = new CompletableFuture<>();
+            remote.schedule(() -> {
+                outstanding.decrementAndGet();
+                if ("fail".equals(value.getDescription())) {
+                    response.completeExceptionally(new IllegalStateException("Remote call has failed for " + value));
+                } else {
+                    response.complete(null);
+                }
+            }, delayMillis, TimeUnit.MILLISECONDS);
+            return response;
+        }
+
+        @Override
+        public void cleanup() {
+        }
+    }
+}
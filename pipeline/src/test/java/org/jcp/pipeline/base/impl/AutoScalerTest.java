@@ -0,0 +1,102 @@
+package org.jcp.pipeline.base.impl;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.jcp.pipeline.base.AutoScaler;
+import org.jcp.pipeline.base.Operation;
+import org.jcp.pipeline.base.Pipeline;
+import org.jcp.pipeline.base.impl.model.TestEntity;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AutoScalerTest {
+
+    private ExecutorService      executor;
+    private Pipeline<TestEntity> pipeline;
+    private SleepingOperation    expensive;
+    private SleepingOperation    cheap;
+
+    @Before
+    public void before() {
+        executor = Executors.newFixedThreadPool(2);
+        pipeline = new Pipeline<>(executor, (e, operation, parameter) -> {
+            throw e;
+        }, 60);
+        expensive = new SleepingOperation(pipeline, null, 2);
+        cheap = new SleepingOperation(pipeline, expensive, 0);
+        pipeline.setEntryOperation(cheap);
+        pipeline.configureStage(cheap, 2, 16);
+        pipeline.configureStage(expensive, 1, 16);
+    }
+
+    @After
+    public void after() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testWorkerIsMovedToTheBottleneck() throws InterruptedException {
+        final AutoScaler<TestEntity> scaler = new AutoScaler<>(pipeline, 3, 50, TimeUnit.MILLISECONDS);
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final Thread producer = new Thread(() -> {
+            for (int i = 0; running.get(); i++) {
+                pipeline.tryStart(new TestEntity(i, "scaled"), 100, TimeUnit.MILLISECONDS);
+            }
+        });
+        producer.start();
+
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (scaler.getWorkers(expensive) < 2 && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(50);
+            scaler.adjust();
+        }
+        running.set(false);
+        producer.join();
+
+        Assert.assertEquals(2, scaler.getWorkers(expensive));
+        Assert.assertEquals(1, scaler.getWorkers(cheap));
+        pipeline.shutdown();
+    }
+
+    @Test
+    public void testIdlePipelineKeepsTheWorkers() throws InterruptedException {
+        final AutoScaler<TestEntity> scaler = new AutoScaler<>(pipeline, 8, 50, TimeUnit.MILLISECONDS);
+        for (int i = 0; i < 10; i++) {
+            TimeUnit.MILLISECONDS.sleep(20);
+            scaler.adjust();
+        }
+
+        Assert.assertEquals(1, scaler.getWorkers(expensive));
+        Assert.assertEquals(2, scaler.getWorkers(cheap));
+        pipeline.shutdown();
+    }
+
+    private static class SleepingOperation extends Operation<TestEntity> {
+
+        private final long millis;
+
+        private SleepingOperation(final Pipeline<TestEntity> pipeline, final Operation<TestEntity> next, final long millis) {
+            super(pipeline, next);
+            this.millis = millis;
+        }
+
+        @Override
+        protected void doPerform(final TestEntity value) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(millis);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            value.incrementCount();
+        }
+
+        @Override
+        public void cleanup() {
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package org.jcp.pipeline.base.impl;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.jcp.pipeline.base.BatchOperation;
+import org.jcp.pipeline.base.Operation;
+import org.jcp.pipeline.base.Pipeline;
+import org.jcp.pipeline.base.impl.model.TestEntity;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BatchOperationTest {
+
+    private ExecutorService      executor;
+    private Pipeline<TestEntity> pipeline;
+
+    @Before
+    public void before() {
+        executor = Executors.newFixedThreadPool(4);
+        pipeline = new Pipeline<>(executor, (e, operation, parameter) -> {
+            throw e;
+        }, 60);
+    }
+
+    @After
+    public void after() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testFlushBySizeAndOnDrain() throws InterruptedException {
+        final CollectingOperation sink = new CollectingOperation(pipeline, 10, 0, null);
+        pipeline.setEntryOperation(sink);
+
+        for (int i = 0; i < 1005; i++) {
+            pipeline.start(new TestEntity(i, "batch"));
+        }
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        pipeline.shutdown();
+
+        Assert.assertEquals(0, sink.getBuffered());
+        Assert.assertEquals(1005, sink.items());
+        sink.batches.forEach(batch -> Assert.assertTrue(batch.size() >= 1 && batch.size() <= 10));
+        // only the buffers left after the last full batch are flushed partially
+        final long partial = sink.batches.stream().filter(batch -> batch.size() < 10).count();
+        Assert.assertTrue(partial <= Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    @Test
+    public void testFlushByLinger() throws InterruptedException {
+        final CountDownLatch flushed = new CountDownLatch(1);
+        final CollectingOperation sink = new CollectingOperation(pipeline, 100, 20, flushed);
+        pipeline.setEntryOperation(sink);
+        Assert.assertEquals(0, timerThreads());
+        pipeline.compile();
+        Assert.assertEquals(1, timerThreads());
+
+        pipeline.start(new TestEntity(1, "linger"));
+        pipeline.start(new TestEntity(2, "linger"));
+
+        Assert.assertTrue(flushed.await(5, TimeUnit.SECONDS));
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        pipeline.shutdown();
+        Assert.assertEquals(2, sink.items());
+        Assert.assertEquals(0, timerThreads());
+    }
+
+    @Test
+    public void testFailedBatchIsReportedPerObject() throws InterruptedException {
+        final ConcurrentLinkedQueue<Object> reported = new ConcurrentLinkedQueue<>();
+        final Pipeline<TestEntity> reporting = new Pipeline<>(executor, (e, operation, parameter) -> reported.add(parameter), 60);
+        final CollectingOperation sink = new CollectingOperation(reporting, 4, 0, null) {
+            @Override
+            protected void doPerformBatch(final List<TestEntity> batch) {
+                throw new IllegalStateException("Batch failed");
+            }
+        };
+        reporting.setEntryOperation(sink);
+
+        for (int i = 0; i < 10; i++) {
+            reporting.start(new TestEntity(i, "failed"));
+        }
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        reporting.shutdown();
+
+        Assert.assertEquals(0, sink.getBuffered());
+        Assert.assertEquals(10, reported.size());
+        Assert.assertEquals(10, reported.stream().map(parameter -> ((TestEntity) parameter).getId()).distinct().count());
+    }
+
+    private static long timerThreads() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().equals("pipeline-batch-CollectingOperation"))
+                .count();
+    }
+
+    private static class CollectingOperation extends BatchOperation<TestEntity> {
+
+        private final ConcurrentLinkedQueue<List<TestEntity>> batches = new ConcurrentLinkedQueue<>();
+        private final CountDownLatch                          flushed;
+
+        private CollectingOperation(final Pipeline<TestEntity> pipeline, final int batchSize, final long lingerMillis,
+                final CountDownLatch flushed) {
+            super(pipeline, null, batchSize, lingerMillis, TimeUnit.MILLISECONDS);
+            this.flushed = flushed;
+        }
+
+        @Override
+        protected void doPerformBatch(final List<TestEntity> batch) {
+            batches.add(batch);
+            if (flushed != null) {
+                flushed.countDown();
+            }
+        }
+
+        private int items() {
+            return batches.stream().mapToInt(List::size).sum();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package org.jcp.pipeline.base.impl;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jcp.pipeline.base.Operation;
+import org.jcp.pipeline.base.Pipeline;
+import org.jcp.pipeline.base.impl.model.TestEntity;
+
+/**
+ * Counts the performed objects and the cleanups, the tests extend it with the behaviour they need
+ */
+public class CountingOperation extends Operation<TestEntity> {
+
+    final AtomicInteger performed = new AtomicInteger();
+    final AtomicInteger cleanups  = new AtomicInteger();
+    final AtomicLong    lastId    = new AtomicLong(-1);
+
+    volatile Thread thread;
+
+    public CountingOperation(final Pipeline<TestEntity> pipeline, final Operation<TestEntity> nextOperationReference) {
+        super(pipeline, nextOperationReference);
+    }
+
+    @Override
+    protected void doPerform(final TestEntity value) {
+        synchronized (value) {
+            value.incrementCount();
+        }
+        thread = Thread.currentThread();
+        lastId.set(value.getId());
+        synchronized (this) {
+            performed.incrementAndGet();
+            notifyAll();
+        }
+    }
+
+    /**
+     * Waits until the operation has been performed the expected number of times
+     */
+    synchronized boolean await(final int expected) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+        while (performed.get() < expected) {
+            final long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return false;
+            }
+            wait(remaining);
+        }
+        return true;
+    }
+
+    @Override
+    public void cleanup() {
+        cleanups.incrementAndGet();
+    }
+}
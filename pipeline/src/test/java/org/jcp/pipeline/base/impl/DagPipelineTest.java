@@ -0,0 +1,153 @@
+package org.jcp.pipeline.base.impl;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.jcp.pipeline.base.DagBuilder;
+import org.jcp.pipeline.base.Operation;
+import org.jcp.pipeline.base.Pipeline;
+import org.jcp.pipeline.base.impl.model.TestEntity;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DagPipelineTest {
+
+    private ExecutorService      executor;
+    private Pipeline<TestEntity> pipeline;
+    private AtomicInteger        errors;
+
+    @Before
+    public void before() {
+        executor = Executors.newFixedThreadPool(4);
+        errors = new AtomicInteger();
+        pipeline = new Pipeline<>(executor, (e, operation, parameter) -> errors.incrementAndGet(), 60);
+    }
+
+    @After
+    public void after() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testBranchesRunConcurrently() throws InterruptedException {
+        // both branches wait for each other, so the test only passes if they are performed at the same time
+        final CountDownLatch bothStarted = new CountDownLatch(2);
+        final CountingOperation join = new CountingOperation(pipeline, null);
+        final CountingOperation branchA = new RendezvousOperation(pipeline, join, bothStarted);
+        final CountingOperation branchB = new RendezvousOperation(pipeline, join, bothStarted);
+        final CountingOperation entry = new CountingOperation(pipeline, null);
+
+        new DagBuilder<>(pipeline).entry(entry).fork(entry, join, branchA, branchB).build();
+
+        for (int i = 0; i < 5; i++) {
+            pipeline.start(new TestEntity(i, "dag"));
+        }
+        Assert.assertTrue(join.await(5));
+
+        Assert.assertEquals(0, errors.get());
+        Assert.assertEquals(5, entry.performed.get());
+        Assert.assertEquals(5, branchA.performed.get());
+        Assert.assertEquals(5, branchB.performed.get());
+        Assert.assertEquals(5, join.performed.get());
+    }
+
+    @Test
+    public void testNestedForkAndFailedBranch() throws InterruptedException {
+        final CountingOperation join = new CountingOperation(pipeline, null);
+        final CountingOperation innerJoin = new CountingOperation(pipeline, join);
+        final CountingOperation innerA = new CountingOperation(pipeline, innerJoin);
+        final CountingOperation innerB = new FailingOperation(pipeline, innerJoin, 1);
+        final CountingOperation innerFork = new CountingOperation(pipeline, null);
+        final CountingOperation branch = new CountingOperation(pipeline, join);
+        final CountingOperation entry = new CountingOperation(pipeline, null);
+
+        new DagBuilder<>(pipeline)
+                .entry(entry)
+                .fork(entry, join, branch, innerFork)
+                .fork(innerFork, innerJoin, innerA, innerB)
+                .build();
+
+        // the failing item is started first and passes all the branches before the next one is started
+        pipeline.start(new TestEntity(1, "failing"));
+        Assert.assertTrue(waitFor(() -> errors.get() == 1 && branch.performed.get() == 1 && innerA.performed.get() == 1));
+        pipeline.start(new TestEntity(2, "passing"));
+        Assert.assertTrue(join.await(1));
+
+        Assert.assertEquals(1, errors.get());
+        Assert.assertEquals(1, innerJoin.performed.get());
+        Assert.assertEquals(1, join.performed.get());
+        Assert.assertEquals(2, join.lastId.get());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBranchNotReachingJoin() {
+        final CountingOperation join = new CountingOperation(pipeline, null);
+        final CountingOperation branchA = new CountingOperation(pipeline, join);
+        final CountingOperation branchB = new CountingOperation(pipeline, null);
+        final CountingOperation entry = new CountingOperation(pipeline, null);
+
+        new DagBuilder<>(pipeline).entry(entry).fork(entry, join, branchA, branchB).build();
+    }
+
+    private static boolean waitFor(final BooleanSupplier condition) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    /**
+     * Waits until all the parties sharing the rendezvous have been started
+     */
+    private static class RendezvousOperation extends CountingOperation {
+
+        private final CountDownLatch rendezvous;
+
+        private RendezvousOperation(final Pipeline<TestEntity> pipeline, final Operation<TestEntity> next,
+                final CountDownLatch rendezvous) {
+            super(pipeline, next);
+            this.rendezvous = rendezvous;
+        }
+
+        @Override
+        protected void doPerform(final TestEntity value) {
+            rendezvous.countDown();
+            try {
+                if (!rendezvous.await(5, TimeUnit.SECONDS)) {
+                    throw new IllegalStateException("The other branch has not been started");
+                }
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            super.doPerform(value);
+        }
+    }
+
+    private static class FailingOperation extends CountingOperation {
+
+        private final long failingId;
+
+        private FailingOperation(final Pipeline<TestEntity> pipeline, final Operation<TestEntity> next, final long failingId) {
+            super(pipeline, next);
+            this.failingId = failingId;
+        }
+
+        @Override
+        protected void doPerform(final TestEntity value) {
+            if (value.getId() == failingId) {
+                throw new IllegalStateException("Failing on purpose");
+            }
+            super.doPerform(value);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package org.jcp.pipeline.base.impl;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.jcp.pipeline.base.Operation;
+import org.jcp.pipeline.base.Pipeline;
+import org.jcp.pipeline.base.impl.model.TestEntity;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DrainTest {
+
+    private ExecutorService      executor;
+    private Pipeline<TestEntity> pipeline;
+
+    @Before
+    public void before() {
+        executor = Executors.newFixedThreadPool(4);
+        pipeline = new Pipeline<>(executor, (e, operation, parameter) -> {
+            throw e;
+        }, 60);
+    }
+
+    @After
+    public void after() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testDrainWaitsForFlowsAndCleansUpOnce() throws Exception {
+        final CountingOperation second = new BlockingOperation(pipeline, null, null);
+        final CountingOperation first = new BlockingOperation(pipeline, second, null);
+        pipeline.setEntryOperation(first);
+        pipeline.configureStage(second, 2, 8);
+
+        for (int i = 0; i < 50; i++) {
+            pipeline.start(new TestEntity(i, "drain"));
+        }
+        pipeline.drainAsync().get(10, TimeUnit.SECONDS);
+
+        Assert.assertEquals(50, first.performed.get());
+        Assert.assertEquals(50, second.performed.get());
+        Assert.assertEquals(1, first.cleanups.get());
+        Assert.assertEquals(1, second.cleanups.get());
+
+        pipeline.shutdown();
+        Assert.assertEquals(1, first.cleanups.get());
+        Assert.assertEquals(1, second.cleanups.get());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testStartAfterDrain() {
+        pipeline.setEntryOperation(new BlockingOperation(pipeline, null, null));
+        pipeline.drainAsync();
+        pipeline.start(new TestEntity(1, "rejected"));
+    }
+
+    @Test
+    public void testAwaitQuiescence() {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountingOperation operation = new BlockingOperation(pipeline, null, release);
+        pipeline.setEntryOperation(operation);
+
+        Assert.assertTrue(pipeline.awaitQuiescence(0, TimeUnit.MILLISECONDS));
+        pipeline.start(new TestEntity(1, "blocked"));
+        Assert.assertFalse(pipeline.awaitQuiescence(50, TimeUnit.MILLISECONDS));
+
+        release.countDown();
+        Assert.assertTrue(pipeline.awaitQuiescence(5, TimeUnit.SECONDS));
+        Assert.assertEquals(1, operation.performed.get());
+        Assert.assertEquals(0, operation.cleanups.get());
+    }
+
+    /**
+     * Waits for the release, or takes a millisecond if there is none
+     */
+    private static class BlockingOperation extends CountingOperation {
+
+        private final CountDownLatch release;
+
+        private BlockingOperation(final Pipeline<TestEntity> pipeline, final Operation<TestEntity> next,
+                final CountDownLatch release) {
+            super(pipeline, next);
+            this.release = release;
+        }
+
+        @Override
+        protected void doPerform(final TestEntity value) {
+            try {
+                if (release != null) {
+                    release.await();
+                } else {
+                    Thread.sleep(1);
+                }
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            super.doPerform(value);
+        }
+    }
+}
@@ -16,7 +16,7 @@ public class FirstOperation extends Operation<TestEntity> {
 
     @Override
     protected void doPerform(TestEntity value) {
-        LOG.info("Performing first operation with value {}", value);
+        LOG.debug("Performing first operation with value {}", value);
         value.incrementCount();
     }
 
@@ -0,0 +1,148 @@
+package org.jcp.pipeline.base.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.jcp.pipeline.base.KeyedOperation;
+import org.jcp.pipeline.base.Operation;
+import org.jcp.pipeline.base.Pipeline;
+import org.jcp.pipeline.base.impl.model.TestEntity;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class KeyedOperationTest {
+
+    private ExecutorService      executor;
+    private Pipeline<TestEntity> pipeline;
+
+    @Before
+    public void before() {
+        executor = Executors.newFixedThreadPool(4);
+        pipeline = new Pipeline<>(executor, (e, operation, parameter) -> {
+            throw e;
+        }, 60);
+    }
+
+    @After
+    public void after() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testAggregationPerKeyIsFlushedOnShutdown() {
+        final KeyCountingOperation aggregate = new KeyCountingOperation(pipeline, 4);
+        final PassOperation pass = new PassOperation(pipeline, aggregate);
+        pipeline.setEntryOperation(pass);
+        Assert.assertEquals(0, partitionThreads());
+        pipeline.compile();
+        Assert.assertEquals(4, partitionThreads());
+
+        for (int i = 0; i < 10000; i++) {
+            pipeline.start(new TestEntity(i, "keyed"));
+        }
+        pipeline.shutdown();
+
+        Assert.assertEquals(8, aggregate.totals.size());
+        aggregate.totals.values().forEach(total -> Assert.assertEquals(1250L, total.longValue()));
+        Assert.assertTrue(aggregate.sharedState.isEmpty());
+    }
+
+    @Test
+    public void testKeyedEntryKeepsOrderPerKey() {
+        final KeyCountingOperation aggregate = new KeyCountingOperation(pipeline, 3);
+        pipeline.setEntryOperation(aggregate);
+
+        for (int i = 0; i < 1000; i++) {
+            pipeline.startOrRun(new TestEntity(i, "keyed"));
+        }
+        Assert.assertTrue(pipeline.awaitQuiescence(10, TimeUnit.SECONDS));
+        pipeline.shutdown();
+
+        Assert.assertTrue(aggregate.outOfOrder.isEmpty());
+        Assert.assertEquals(1000L, aggregate.totals.values().stream().mapToLong(Long::longValue).sum());
+    }
+
+    private static long partitionThreads() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().contains("-KeyCountingOperation-"))
+                .count();
+    }
+
+    private static class PassOperation extends Operation<TestEntity> {
+
+        private PassOperation(final Pipeline<TestEntity> pipeline, final Operation<TestEntity> next) {
+            super(pipeline, next);
+        }
+
+        @Override
+        protected void doPerform(final TestEntity value) {
+            value.incrementCount();
+        }
+
+        @Override
+        public void cleanup() {
+        }
+    }
+
+    /**
+     * Counts the objects per key (the last digit of the id) in a plain map per partition
+     */
+    private static class KeyCountingOperation extends KeyedOperation<TestEntity, Long, KeyCountingOperation.State> {
+
+        private final Map<Long, Long>      totals      = new ConcurrentHashMap<>();
+        private final Map<Integer, Thread> sharedState = new ConcurrentHashMap<>();
+        private final Map<Long, Long>      outOfOrder  = new ConcurrentHashMap<>();
+
+        private KeyCountingOperation(final Pipeline<TestEntity> pipeline, final int partitions) {
+            super(pipeline, null, partitions, 64);
+        }
+
+        @Override
+        protected Long getKey(final TestEntity value) {
+            return value.getId() % 8;
+        }
+
+        @Override
+        protected State createState(final int partition) {
+            return new State(partition);
+        }
+
+        @Override
+        protected void doPerform(final TestEntity value, final State state) {
+            if (state.owner != Thread.currentThread()) {
+                sharedState.put(state.partition, Thread.currentThread());
+            }
+            final Long key = getKey(value);
+            state.counts.merge(key, 1L, Long::sum);
+            final Long previous = state.lastIds.put(key, value.getId());
+            if (previous != null && previous > value.getId()) {
+                outOfOrder.put(key, value.getId());
+            }
+        }
+
+        @Override
+        protected void flush(final int partition, final State state) {
+            if (state.owner != Thread.currentThread()) {
+                sharedState.put(state.partition, Thread.currentThread());
+            }
+            totals.putAll(state.counts);
+        }
+
+        private static class State {
+            private final int             partition;
+            private final Thread          owner   = Thread.currentThread();
+            private final Map<Long, Long> counts  = new HashMap<>();
+            private final Map<Long, Long> lastIds = new HashMap<>();
+
+            private State(final int partition) {
+                this.partition = partition;
+            }
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package org.jcp.pipeline.base.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.jcp.pipeline.base.Operation;
+import org.jcp.pipeline.base.Pipeline;
+import org.jcp.pipeline.base.impl.model.TestEntity;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class OrderedPipelineTest {
+
+    private ExecutorService      executor;
+    private Pipeline<TestEntity> pipeline;
+
+    @Before
+    public void before() {
+        executor = Executors.newFixedThreadPool(8);
+        // the failures are swallowed, the failed objects are just missing in the output
+        pipeline = new Pipeline<>(executor, (e, operation, parameter) -> {
+        }, 60);
+    }
+
+    @After
+    public void after() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testSinkReceivesStartOrder() {
+        final SinkOperation sink = new SinkOperation(pipeline);
+        final ShuffleOperation shuffle = new ShuffleOperation(pipeline, sink, null);
+        pipeline.setEntryOperation(shuffle);
+        pipeline.configureOrdering(sink, 64);
+
+        for (int i = 0; i < 500; i++) {
+            pipeline.start(new TestEntity(i, "ordered"));
+        }
+        Assert.assertTrue(pipeline.awaitQuiescence(10, TimeUnit.SECONDS));
+
+        Assert.assertEquals(500, sink.received.size());
+        for (int i = 0; i < 500; i++) {
+            Assert.assertEquals(i, sink.received.get(i).longValue());
+        }
+        pipeline.shutdown();
+    }
+
+    @Test
+    public void testFailedObjectsDoNotHoldBackOthers() {
+        final SinkOperation sink = new SinkOperation(pipeline);
+        final ShuffleOperation shuffle = new ShuffleOperation(pipeline, sink, null);
+        pipeline.setEntryOperation(shuffle);
+        pipeline.configureOrdering(sink, 16);
+
+        final List<Long> expected = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            pipeline.start(new TestEntity(i, i % 7 == 0 ? "fail" : "ordered"));
+            if (i % 7 != 0) {
+                expected.add((long) i);
+            }
+        }
+        Assert.assertTrue(pipeline.awaitQuiescence(10, TimeUnit.SECONDS));
+
+        Assert.assertEquals(expected, sink.received);
+        pipeline.shutdown();
+    }
+
+    @Test
+    public void testBufferCapacityAppliesBackpressure() {
+        final CountDownLatch release = new CountDownLatch(1);
+        final SinkOperation sink = new SinkOperation(pipeline);
+        final ShuffleOperation shuffle = new ShuffleOperation(pipeline, sink, release);
+        pipeline.setEntryOperation(shuffle);
+        pipeline.configureOrdering(sink, 4);
+
+        // the first object is held, the next three wait in the buffer
+        for (int i = 0; i < 4; i++) {
+            Assert.assertTrue(pipeline.tryStart(new TestEntity(i, "ordered")));
+        }
+        Assert.assertFalse(pipeline.tryStart(new TestEntity(4, "ordered")));
+
+        release.countDown();
+        Assert.assertTrue(pipeline.tryStart(new TestEntity(4, "ordered"), 5, TimeUnit.SECONDS));
+        Assert.assertTrue(pipeline.awaitQuiescence(10, TimeUnit.SECONDS));
+
+        Assert.assertEquals(5, sink.received.size());
+        for (int i = 0; i < 5; i++) {
+            Assert.assertEquals(i, sink.received.get(i).longValue());
+        }
+        pipeline.shutdown();
+    }
+
+    @Test
+    public void testTryStartIsNotHeldByWaitingStart() throws InterruptedException {
+        final CountDownLatch release = new CountDownLatch(1);
+        final SinkOperation sink = new SinkOperation(pipeline);
+        final ShuffleOperation shuffle = new ShuffleOperation(pipeline, sink, release);
+        pipeline.setEntryOperation(shuffle);
+        pipeline.configureOrdering(sink, 4);
+
+        for (int i = 0; i < 4; i++) {
+            Assert.assertTrue(pipeline.tryStart(new TestEntity(i, "ordered")));
+        }
+        // waits for the room till the first object is released
+        final Thread waiting = new Thread(() -> pipeline.start(new TestEntity(4, "ordered")));
+        waiting.start();
+        TimeUnit.MILLISECONDS.sleep(50);
+
+        Assert.assertFalse(pipeline.tryStart(new TestEntity(5, "given up")));
+        Assert.assertFalse(pipeline.tryStart(new TestEntity(6, "given up"), 50, TimeUnit.MILLISECONDS));
+        Assert.assertTrue(waiting.isAlive());
+
+        release.countDown();
+        waiting.join(TimeUnit.SECONDS.toMillis(5));
+        Assert.assertTrue(pipeline.tryStart(new TestEntity(7, "ordered"), 5, TimeUnit.SECONDS));
+        Assert.assertTrue(pipeline.awaitQuiescence(10, TimeUnit.SECONDS));
+
+        Assert.assertEquals(Arrays.asList(0L, 1L, 2L, 3L, 4L, 7L), sink.received);
+        pipeline.shutdown();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testOrderedEntryIsRejected() {
+        final SinkOperation sink = new SinkOperation(pipeline);
+        pipeline.setEntryOperation(sink);
+        pipeline.configureOrdering(sink, 4);
+        pipeline.compile();
+    }
+
+    /**
+     * Takes a random time, so the objects overtake each other. The first object waits for the release if there is one.
+     */
+    private static class ShuffleOperation extends Operation<TestEntity> {
+
+        private final CountDownLatch release;
+
+        private ShuffleOperation(final Pipeline<TestEntity> pipeline, final Operation<TestEntity> next,
+                final CountDownLatch release) {
+            super(pipeline, next);
+            this.release = release;
+        }
+
+        @Override
+        protected void doPerform(final TestEntity value) {
+            try {
+                if (release != null && value.getId() == 0) {
+                    release.await();
+                } else {
+                    TimeUnit.MICROSECONDS.sleep(ThreadLocalRandom.current().nextInt(1000));
+                }
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            if ("fail".equals(value.getDescription())) {
+                throw new IllegalStateException("Failed " + value);
+            }
+        }
+
+        @Override
+        public void cleanup() {
+        }
+    }
+
+    /**
+     * Collects the ids into a plain list, the ordered delivery is serialized
+     */
+    private static class SinkOperation extends Operation<TestEntity> {
+
+        private final List<Long> received = new ArrayList<>();
+
+        private SinkOperation(final Pipeline<TestEntity> pipeline) {
+            super(pipeline, null);
+        }
+
+        @Override
+        protected void doPerform(final TestEntity value) {
+            received.add(value.getId());
+        }
+
+        @Override
+        public void cleanup() {
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package org.jcp.pipeline.base.impl;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.ObjectName;
+
+import org.jcp.metrics.JmxSupport;
+import org.jcp.pipeline.base.Operation;
+import org.jcp.pipeline.base.Pipeline;
+import org.jcp.pipeline.base.impl.model.TestEntity;
+import org.jcp.pipeline.base.metrics.OperationMetricsSnapshot;
+import org.jcp.pipeline.base.metrics.PipelineMetricsSnapshot;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PipelineMetricsTest {
+
+    private ExecutorService      executor;
+    private Pipeline<TestEntity> pipeline;
+
+    @Before
+    public void before() {
+        executor = Executors.newFixedThreadPool(4);
+        // the failures are swallowed, the flows are counted by the metrics only
+        pipeline = new Pipeline<>(executor, (e, operation, parameter) -> {
+        }, 60);
+    }
+
+    @After
+    public void after() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testOperationMetrics() throws Exception {
+        final FailingOperation second = new FailingOperation(pipeline, null);
+        final FailingOperation first = new FailingOperation(pipeline, second);
+        pipeline.setEntryOperation(first);
+        pipeline.compile();
+        final OperationMetricsSnapshot initial = pipeline.getMetrics().snapshot().getOperation("FailingOperation-0");
+
+        for (int i = 0; i < 100; i++) {
+            pipeline.start(new TestEntity(i, "metrics"));
+        }
+        Assert.assertTrue(pipeline.awaitQuiescence(10, TimeUnit.SECONDS));
+
+        final PipelineMetricsSnapshot snapshot = pipeline.getMetrics().snapshot();
+        Assert.assertEquals(0, snapshot.getInFlight());
+        // the ids ending with 0 fail in the first operation, the ones ending with 1 in the second one
+        Assert.assertEquals(20, snapshot.getErrors());
+
+        final OperationMetricsSnapshot firstSnapshot = snapshot.getOperation("FailingOperation-0");
+        Assert.assertEquals(90, firstSnapshot.getPerformed());
+        Assert.assertEquals(10, firstSnapshot.getFailed());
+        Assert.assertEquals(10, firstSnapshot.getErrors());
+        Assert.assertEquals(100, firstSnapshot.getLatency().getCount());
+        Assert.assertEquals(0, firstSnapshot.getActive());
+        Assert.assertTrue(firstSnapshot.getThroughput(initial) > 0);
+        // reading the metrics does not reset them
+        Assert.assertEquals(90, pipeline.getMetrics().snapshot().getOperation("FailingOperation-0").getPerformed());
+
+        final OperationMetricsSnapshot secondSnapshot = snapshot.getOperation("FailingOperation-1");
+        Assert.assertEquals(80, secondSnapshot.getPerformed());
+        Assert.assertEquals(10, secondSnapshot.getFailed());
+        pipeline.shutdown();
+    }
+
+    @Test
+    public void testStageQueueWaitAndJmx() throws Exception {
+        final FailingOperation second = new FailingOperation(pipeline, null);
+        final FailingOperation first = new FailingOperation(pipeline, second);
+        pipeline.setEntryOperation(first);
+        pipeline.configureStage(second, 1, 4);
+        pipeline.compile();
+
+        final List<ObjectName> names = pipeline.getMetrics().registerMBeans("test");
+        try {
+            for (int i = 1; i < 10; i++) {
+                pipeline.start(new TestEntity(i, "staged"));
+            }
+            Assert.assertTrue(pipeline.awaitQuiescence(10, TimeUnit.SECONDS));
+
+            Assert.assertEquals(9, pipeline.getMetrics().snapshot().getOperation("FailingOperation-1").getQueueWait().getCount());
+            Assert.assertEquals(3, names.size());
+            Assert.assertEquals(9L, ManagementFactory.getPlatformMBeanServer().getAttribute(names.get(1), "Performed"));
+        } finally {
+            names.forEach(JmxSupport::unregister);
+        }
+        pipeline.shutdown();
+    }
+
+    /**
+     * Fails the object in the n-th operation of its flow if the last digit of its id is n - 1
+     */
+    private static class FailingOperation extends Operation<TestEntity> {
+
+        private FailingOperation(final Pipeline<TestEntity> pipeline, final Operation<TestEntity> next) {
+            super(pipeline, next);
+        }
+
+        @Override
+        protected void doPerform(final TestEntity value) {
+            value.incrementCount();
+            if (value.getId() % 10 == value.getUpdateCount() - 1) {
+                throw new IllegalStateException("Failed " + value);
+            }
+        }
+
+        @Override
+        public void cleanup() {
+        }
+    }
+}
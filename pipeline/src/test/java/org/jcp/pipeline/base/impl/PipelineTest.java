@@ -30,9 +30,10 @@ public class PipelineTest {
             LOG.info("Execution rejected: {}", r);
         });
 
+        // a finished flow still occupies its pool thread for a moment, so the flows are bounded by the executor queue
         pipeline = new Pipeline(executor, (e, operation, parameter) -> {
             throw e;
-        }, 60);
+        }, 60, 50);
 
         Operation<TestEntity> op4 = new JoinOperation(pipeline, null);
         Operation<TestEntity> op3 = new ThirdOperation(pipeline, op4);
@@ -71,7 +72,7 @@ public class PipelineTest {
 
         LOG.info("Sync processing took {} ms", endSync - startSync);
 
-        testEntities.forEach(te -> Assert.assertEquals(3, te.getUpdateCount()));
+        testEntities.forEach(te -> Assert.assertEquals(4, te.getUpdateCount()));
     }
 
 }
\ No newline at end of file
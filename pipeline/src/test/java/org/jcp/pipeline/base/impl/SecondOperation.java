@@ -16,7 +16,7 @@ public class SecondOperation extends Operation<TestEntity> {
 
     @Override
     protected void doPerform(TestEntity value) {
-        LOG.info("Performing second operation with value {}", value);
+        LOG.debug("Performing second operation with value {}", value);
         value.incrementCount();
     }
 
@@ -0,0 +1,110 @@
+package org.jcp.pipeline.base.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jcp.pipeline.base.Operation;
+import org.jcp.pipeline.base.Pipeline;
+import org.jcp.pipeline.base.impl.model.TestEntity;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class StagedPipelineTest {
+
+    @Test
+    public void testStagedPipeline() {
+        final Pipeline<TestEntity> pipeline = new Pipeline<>(Executors.newFixedThreadPool(2), (e, operation, parameter) -> {
+            throw e;
+        }, 60);
+
+        final RecordingOperation slow = new RecordingOperation(pipeline, null, 1);
+        final RecordingOperation fast = new RecordingOperation(pipeline, slow, 0);
+        pipeline.setEntryOperation(fast);
+        pipeline.configureStage(fast, 1, 4);
+        pipeline.configureStage(slow, 3, 16);
+
+        final List<TestEntity> testEntities = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            testEntities.add(new TestEntity(i, UUID.randomUUID().toString()));
+        }
+        testEntities.forEach(pipeline::start);
+        pipeline.shutdown();
+
+        testEntities.forEach(te -> Assert.assertEquals(2, te.getUpdateCount()));
+        Assert.assertEquals(60, fast.performed.get());
+        Assert.assertEquals(60, slow.performed.get());
+
+        fast.threads.forEach(name -> Assert.assertTrue(name, name.startsWith("pipeline-stage-")));
+        slow.threads.forEach(name -> Assert.assertTrue(name, name.startsWith("pipeline-stage-")));
+        Assert.assertEquals(1, fast.threads.size());
+        Assert.assertTrue(slow.threads.size() > 1);
+        slow.threads.forEach(name -> Assert.assertFalse(fast.threads.contains(name)));
+    }
+
+    @Test
+    public void testTopologyIsFrozenByTheFirstStart() {
+        final Pipeline<TestEntity> pipeline = new Pipeline<>(Executors.newSingleThreadExecutor(), (e, operation, parameter) -> {
+            throw e;
+        }, 60);
+        final RecordingOperation operation = new RecordingOperation(pipeline, null, 0);
+        pipeline.setEntryOperation(operation);
+        Assert.assertFalse(pipeline.isCompiled());
+
+        final TestEntity testEntity = new TestEntity(1, "compiled");
+        pipeline.start(testEntity);
+        Assert.assertTrue(pipeline.isCompiled());
+        try {
+            pipeline.configureStage(operation, 1, 1);
+            Assert.fail("The topology must not be changed after the compilation");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        pipeline.shutdown();
+        Assert.assertEquals(1, testEntity.getUpdateCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidStage() {
+        final Pipeline<TestEntity> pipeline = new Pipeline<>(Executors.newSingleThreadExecutor(), (e, operation, parameter) -> {
+            throw e;
+        }, 60);
+        final RecordingOperation operation = new RecordingOperation(pipeline, null, 0);
+        pipeline.setEntryOperation(operation);
+        pipeline.configureStage(operation, 0, 1);
+    }
+
+    private static class RecordingOperation extends Operation<TestEntity> {
+
+        private final long          sleepMillis;
+        private final Set<String>   threads   = ConcurrentHashMap.newKeySet();
+        private final AtomicInteger performed = new AtomicInteger();
+
+        private RecordingOperation(final Pipeline<TestEntity> pipeline, final Operation<TestEntity> next, final long sleepMillis) {
+            super(pipeline, next);
+            this.sleepMillis = sleepMillis;
+        }
+
+        @Override
+        protected void doPerform(final TestEntity value) {
+            threads.add(Thread.currentThread().getName());
+            try {
+                Thread.sleep(sleepMillis);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            synchronized (value) {
+                value.incrementCount();
+            }
+            performed.incrementAndGet();
+        }
+
+        @Override
+        public void cleanup() {
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package org.jcp.pipeline.base.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import org.jcp.pipeline.base.Operation;
+import org.jcp.pipeline.base.Pipeline;
+import org.jcp.pipeline.base.impl.model.TestEntity;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class StartAllTest {
+
+    private ExecutorService      executor;
+    private AtomicInteger        tasks;
+    private AtomicInteger        errors;
+    private Pipeline<TestEntity> pipeline;
+    private CountingOperation    second;
+
+    @Before
+    public void before() {
+        executor = Executors.newFixedThreadPool(4);
+        tasks = new AtomicInteger();
+        errors = new AtomicInteger();
+        pipeline = new Pipeline<>(task -> {
+            tasks.incrementAndGet();
+            executor.execute(task);
+        }, (e, operation, parameter) -> errors.incrementAndGet(), 60);
+
+        second = new FailingOperation(pipeline);
+        final CountingOperation first = new CountingOperation(pipeline, second);
+        pipeline.setEntryOperation(first);
+    }
+
+    @After
+    public void after() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testCollectionIsSplitIntoChunks() {
+        final List<TestEntity> testEntities = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            testEntities.add(new TestEntity(i, "chunked"));
+        }
+
+        pipeline.startAll(testEntities.spliterator(), 100);
+        pipeline.shutdown();
+
+        testEntities.forEach(te -> Assert.assertEquals(2, te.getUpdateCount()));
+        Assert.assertTrue("" + tasks.get(), tasks.get() >= 10 && tasks.get() <= 16);
+        Assert.assertEquals(0, pipeline.getInFlight());
+    }
+
+    @Test
+    public void testUnsizedStreamAndErrorRouting() {
+        final AtomicLong ids = new AtomicLong();
+        pipeline.startAll(Stream.generate(() -> new TestEntity(ids.getAndIncrement(), "generated")).limit(600));
+        pipeline.shutdown();
+
+        Assert.assertEquals(3, tasks.get());
+        // every 7th entity fails in the second operation
+        Assert.assertEquals(86, errors.get());
+        Assert.assertEquals(600 - 86, second.performed.get());
+        Assert.assertEquals(0, pipeline.getInFlight());
+    }
+
+    /**
+     * Fails for every 7th generated entity
+     */
+    private static class FailingOperation extends CountingOperation {
+
+        private FailingOperation(final Pipeline<TestEntity> pipeline) {
+            super(pipeline, null);
+        }
+
+        @Override
+        protected void doPerform(final TestEntity value) {
+            if (value.getId() % 7 == 0 && "generated".equals(value.getDescription())) {
+                throw new IllegalStateException("Failing on purpose");
+            }
+            super.doPerform(value);
+        }
+    }
+}
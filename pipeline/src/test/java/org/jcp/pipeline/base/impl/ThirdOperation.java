@@ -16,7 +16,7 @@ public class ThirdOperation extends Operation<TestEntity> {
 
     @Override
     protected void doPerform(TestEntity value) {
-        LOG.info("Performing third operation with value {}", value);
+        LOG.debug("Performing third operation with value {}", value);
         value.incrementCount();
     }
 
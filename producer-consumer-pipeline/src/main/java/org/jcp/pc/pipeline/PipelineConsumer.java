@@ -0,0 +1,126 @@
+package org.jcp.pc.pipeline;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import org.jcp.pc.base.metrics.ProcessMetrics;
+import org.jcp.pc.base.process.CompletionListener;
+import org.jcp.pc.base.process.ItemConsumer;
+import org.jcp.pc.base.process.Producer;
+import org.jcp.pipeline.base.Pipeline;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An {@link ItemConsumer} that hands the items over to a {@link Pipeline} directly: every accepted item starts a
+ * pipeline flow, so the item is queued once and hops threads once, to the pipeline's executor. The pipeline's flow
+ * limit is the backpressure: the hand over blocks while the maximum number of flows is in progress, which holds the
+ * {@link Producer}'s processing loop and so the next fetch. The pipeline has to be created with a flow limit (or a
+ * staged entry operation with a bounded queue), otherwise nothing throttles the producer.
+ * <p>
+ * The {@link ProcessMetrics} only record the hand over: the time an item waits for the admission is the hand over
+ * wait, an item is counted as admitted once its flow has been started and as rejected if the pipeline refuses it. The
+ * processing counters and latency are left alone, the flows are measured by the
+ * {@link Pipeline#getMetrics() pipeline metrics}.
+ * <p>
+ * The failures are handled by the pipeline's error handler, the consumer has no retries, dead letters or journal. The
+ * end of a flow is not reported back, so the consumer is not a
+ * {@link org.jcp.pc.base.process.CompletionReportingConsumer} and the producer must not deduplicate the items (see
+ * {@link Producer#isDeduplicating()}). The shutdown drains the pipeline, use a {@link PipelineProcessExecutor} to let
+ * the producer finish its loop first.
+ *
+ * @param <T> the supported type
+ */
+public class PipelineConsumer<T> implements ItemConsumer<T> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PipelineConsumer.class);
+
+    private final Pipeline<T>    pipeline;
+    private final ProcessMetrics metrics;
+
+    /**
+     * Creates a consumer feeding the pipeline
+     *
+     * @param pipeline the pipeline processing the items, with the entry operation set
+     */
+    public PipelineConsumer(final Pipeline<T> pipeline) {
+        this(pipeline, new ProcessMetrics());
+    }
+
+    /**
+     * Creates a consumer feeding the pipeline
+     *
+     * @param pipeline the pipeline processing the items, with the entry operation set
+     * @param metrics  the metrics, usually shared with the {@link Producer}
+     */
+    public PipelineConsumer(final Pipeline<T> pipeline, final ProcessMetrics metrics) {
+        assert pipeline != null;
+        assert metrics != null;
+        this.pipeline = pipeline;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Starts a pipeline flow for the item, blocks while the maximum number of flows is in progress
+     *
+     * @param result to be processed
+     * @throws IllegalStateException if the pipeline is being shut down
+     */
+    @Override
+    public void accept(final T result) {
+        final long submittedNanos = metrics.itemSubmitted();
+        try {
+            pipeline.start(result);
+        } catch (final RuntimeException e) {
+            metrics.itemRejected();
+            throw e;
+        }
+        metrics.itemAdmitted(submittedNanos);
+    }
+
+    /**
+     * Does nothing, the consumer keeps no items between the runs
+     *
+     * @param registration not used
+     * @param listener     not used
+     */
+    @Override
+    public void recover(final Consumer<? super T> registration, final CompletionListener<? super T> listener) {
+        // nothing to recover without a journal
+    }
+
+    /**
+     * Stops accepting the items and waits for the started flows and the operation cleanups, as maximum till the
+     * pipeline's shutdown timeout is reached
+     */
+    public void requestShutdown() {
+        LOG.info("PipelineConsumer shutdown requested, draining the pipeline");
+        pipeline.shutdown();
+        LOG.info("PipelineConsumer shutdown complete");
+    }
+
+    /**
+     * Stops accepting the items and returns right away, see {@link Pipeline#drainAsync()}
+     *
+     * @return completes once the started flows have finished and the operations have been cleaned up
+     */
+    @Override
+    public CompletableFuture<Void> shutdownAsync() {
+        LOG.info("PipelineConsumer shutdown requested, draining the pipeline");
+        return pipeline.drainAsync().thenRun(() -> LOG.info("PipelineConsumer shutdown complete"));
+    }
+
+    /**
+     * @return the metrics the hand over is recorded to
+     */
+    public ProcessMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return the pipeline processing the items
+     */
+    public Pipeline<T> getPipeline() {
+        return pipeline;
+    }
+}
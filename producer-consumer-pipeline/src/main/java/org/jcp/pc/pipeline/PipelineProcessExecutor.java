@@ -0,0 +1,45 @@
+package org.jcp.pc.pipeline;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.jcp.pc.base.executor.ProcessExecutor;
+import org.jcp.pc.base.process.Producer;
+
+/**
+ * Runs a {@link Producer} feeding a {@link PipelineConsumer}. The shutdown cascades: the producer finishes the
+ * hand over of the current item first, then the pipeline is drained, so every item the producer has handed over is
+ * processed and none is rejected by the pipeline being shut down. A deduplicating producer is rejected, since the
+ * pipeline consumer does not report the completion of the items.
+ *
+ * @param <T> supported type
+ */
+public class PipelineProcessExecutor<T> extends ProcessExecutor<T> {
+
+    private final Producer<T>         producer;
+    private final PipelineConsumer<T> consumer;
+
+    /**
+     * @param producer the producer, must not deduplicate the items
+     * @param consumer the consumer feeding the pipeline
+     */
+    public PipelineProcessExecutor(final Producer<T> producer,
+            final PipelineConsumer<T> consumer) {
+        super(producer, consumer);
+        if (producer.isDeduplicating()) {
+            throw new IllegalArgumentException("The pipeline consumer does not report the completion of the items, "
+                    + "the producer must not deduplicate them");
+        }
+        this.producer = producer;
+        this.consumer = consumer;
+    }
+
+    /**
+     * Shuts the producer down, then drains the pipeline
+     *
+     * @return completes once the pipeline has been drained
+     */
+    @Override
+    public CompletableFuture<Void> shutdownAsync() {
+        return producer.shutdownAsync().thenCompose(ignored -> consumer.shutdownAsync());
+    }
+}
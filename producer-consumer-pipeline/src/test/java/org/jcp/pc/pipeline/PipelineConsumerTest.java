@@ -0,0 +1,170 @@
+package org.jcp.pc.pipeline;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.jcp.pc.base.dedup.InFlightRegistry;
+import org.jcp.pc.base.metrics.ProcessMetrics;
+import org.jcp.pc.base.process.Producer;
+import org.jcp.pipeline.base.Operation;
+import org.jcp.pipeline.base.Pipeline;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PipelineConsumerTest {
+
+    private static final int MAX_IN_FLIGHT = 4;
+    private static final int FETCH_SIZE    = 10;
+
+    private ExecutorService   executor;
+    private Pipeline<Long>    pipeline;
+    private CountingOperation operation;
+
+    @Before
+    public void before() {
+        executor = Executors.newFixedThreadPool(2);
+        pipeline = new Pipeline<>(executor, (e, op, parameter) -> {
+            throw e;
+        }, 60, MAX_IN_FLIGHT);
+        operation = new CountingOperation(pipeline);
+        pipeline.setEntryOperation(operation);
+    }
+
+    @After
+    public void after() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testSlowPipelineThrottlesTheFetches() throws InterruptedException {
+        final CountingProducer producer = new CountingProducer(operation);
+        final PipelineProcessExecutor<Long> process = new PipelineProcessExecutor<>(producer,
+                new PipelineConsumer<>(pipeline, producer.getMetrics()));
+
+        final Thread fetching = new Thread(() -> {
+            for (int i = 0; i < 5; i++) {
+                process.run();
+            }
+        });
+        fetching.start();
+        fetching.join(TimeUnit.SECONDS.toMillis(10));
+        process.shutdown();
+
+        // a fetch only starts once the previous result has been admitted
+        Assert.assertTrue(String.valueOf(producer.maxBacklog.get()), producer.maxBacklog.get() <= MAX_IN_FLIGHT);
+        Assert.assertEquals(5 * FETCH_SIZE, operation.processed.get());
+        Assert.assertFalse(operation.threads.contains(fetching.getName()));
+        Assert.assertEquals(1, operation.cleanups.get());
+        // every item handed over is counted as admitted, the processing is not recorded by the process metrics
+        Assert.assertEquals(5 * FETCH_SIZE, producer.getMetrics().getAdmitted());
+        Assert.assertEquals(0, producer.getMetrics().getSucceeded());
+        Assert.assertEquals(0, producer.getMetrics().getProcessLatency().getCount());
+        Assert.assertEquals(0, producer.getMetrics().getQueueDepth());
+        Assert.assertEquals(5 * FETCH_SIZE, producer.getMetrics().getHandoffWait().getCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDeduplicatingProducerIsRejected() {
+        final Producer<Long> producer = new Producer<Long>(e -> {
+            throw e;
+        }, new ProcessMetrics(), new InFlightRegistry<>(Long::longValue)) {
+            @Override
+            public Collection<Long> fetch() {
+                return Collections.emptyList();
+            }
+        };
+        new PipelineProcessExecutor<>(producer, new PipelineConsumer<>(pipeline));
+    }
+
+    @Test
+    public void testShutdownCascadesToThePipelineDrain() throws InterruptedException {
+        final CountingProducer producer = new CountingProducer(operation);
+        final CountingConsumer consumer = new CountingConsumer(pipeline);
+        final PipelineProcessExecutor<Long> process = new PipelineProcessExecutor<>(producer, consumer);
+
+        final Thread fetching = new Thread(process::run);
+        fetching.start();
+        // the producer is blocked handing over the fetched items
+        while (operation.processed.get() == 0) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        process.shutdown();
+        fetching.join();
+
+        // the items handed over before the shutdown are processed, the rest of the fetch is left
+        Assert.assertEquals(consumer.accepted.get(), operation.processed.get());
+        Assert.assertTrue(operation.processed.get() < FETCH_SIZE);
+        Assert.assertEquals(1, operation.cleanups.get());
+    }
+
+    private static class CountingConsumer extends PipelineConsumer<Long> {
+
+        private final AtomicInteger accepted = new AtomicInteger();
+
+        private CountingConsumer(final Pipeline<Long> pipeline) {
+            super(pipeline);
+        }
+
+        @Override
+        public void accept(final Long result) {
+            super.accept(result);
+            accepted.incrementAndGet();
+        }
+    }
+
+    private static class CountingProducer extends Producer<Long> {
+
+        private final CountingOperation operation;
+        private final AtomicLong        fetched    = new AtomicLong();
+        private final AtomicLong        maxBacklog = new AtomicLong();
+
+        private CountingProducer(final CountingOperation operation) {
+            this.operation = operation;
+        }
+
+        @Override
+        public Collection<Long> fetch() {
+            final long backlog = fetched.get() - operation.processed.get();
+            maxBacklog.accumulateAndGet(backlog, Math::max);
+            final List<Long> items = new ArrayList<>(FETCH_SIZE);
+            for (int i = 0; i < FETCH_SIZE; i++) {
+                items.add(fetched.getAndIncrement());
+            }
+            return items;
+        }
+    }
+
+    private static class CountingOperation extends Operation<Long> {
+
+        private final AtomicInteger      processed = new AtomicInteger();
+        private final AtomicInteger      cleanups  = new AtomicInteger();
+        private final Collection<String> threads   = Collections.synchronizedSet(new HashSet<>());
+
+        private CountingOperation(final Pipeline<Long> pipeline) {
+            super(pipeline, null);
+        }
+
+        @Override
+        protected void doPerform(final Long value) {
+            threads.add(Thread.currentThread().getName());
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(5));
+            processed.incrementAndGet();
+        }
+
+        @Override
+        public void cleanup() {
+            cleanups.incrementAndGet();
+        }
+    }
+}
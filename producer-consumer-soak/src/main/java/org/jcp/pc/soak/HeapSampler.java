@@ -0,0 +1,63 @@
+package org.jcp.pc.soak;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Samples the used heap in a daemon thread and keeps the high-water mark. The samples are taken at a fixed interval,
+ * so a short peak right before a collection may be missed.
+ */
+class HeapSampler {
+
+    private final MemoryMXBean memory;
+    private final long         intervalNanos;
+    private final Thread       thread;
+
+    private volatile boolean running;
+    private volatile long    highWaterMark;
+
+    /**
+     * @param interval the sampling interval
+     * @param unit     unit of the interval
+     */
+    HeapSampler(final long interval, final TimeUnit unit) {
+        this.memory = ManagementFactory.getMemoryMXBean();
+        this.intervalNanos = unit.toNanos(interval);
+        this.thread = new Thread(this::sample, "soak-heap-sampler");
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        running = true;
+        thread.start();
+    }
+
+    /**
+     * Stops the sampling, takes the last sample
+     *
+     * @return the highest used heap observed, in bytes
+     */
+    long stop() {
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+        return highWaterMark;
+    }
+
+    private void sample() {
+        do {
+            final long used = memory.getHeapMemoryUsage().getUsed();
+            if (used > highWaterMark) {
+                highWaterMark = used;
+            }
+            LockSupport.parkNanos(this, intervalNanos);
+        } while (running);
+        highWaterMark = Math.max(highWaterMark, memory.getHeapMemoryUsage().getUsed());
+    }
+}
@@ -0,0 +1,49 @@
+package org.jcp.pc.soak;
+
+/**
+ * The distributions of the synthetic service times, all of them have the configured mean
+ */
+public enum ServiceTimeDistribution {
+
+    CONSTANT {
+        @Override
+        long sample(final long mean, final double uniform) {
+            return mean;
+        }
+    },
+    /**
+     * Uniform between zero and twice the mean
+     */
+    UNIFORM {
+        @Override
+        long sample(final long mean, final double uniform) {
+            return (long) (2 * mean * uniform);
+        }
+    },
+    EXPONENTIAL {
+        @Override
+        long sample(final long mean, final double uniform) {
+            return (long) (-mean * Math.log(1.0 - uniform));
+        }
+    },
+    /**
+     * Pareto with the shape of 1.5, a heavy tail: the slowest 1% of the items take over 7 times the mean
+     */
+    PARETO {
+        @Override
+        long sample(final long mean, final double uniform) {
+            // the mean of the distribution is shape * scale / (shape - 1)
+            final double scale = mean * (PARETO_SHAPE - 1) / PARETO_SHAPE;
+            return (long) (scale / Math.pow(1.0 - uniform, 1.0 / PARETO_SHAPE));
+        }
+    };
+
+    private static final double PARETO_SHAPE = 1.5;
+
+    /**
+     * @param mean    the mean of the distribution
+     * @param uniform a value uniformly distributed in the range of {@code [0, 1)}
+     * @return the sampled value
+     */
+    abstract long sample(long mean, double uniform);
+}
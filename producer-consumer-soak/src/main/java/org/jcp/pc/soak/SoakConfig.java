@@ -0,0 +1,356 @@
+package org.jcp.pc.soak;
+
+import java.util.Locale;
+
+/**
+ * The workload of a soak run. The synthetic fetch results, service times and failures are derived from the seed and
+ * the item ids only, so the runs with the same configuration process the same workload regardless of the thread
+ * scheduling. The setters return the configuration, so the calls can be chained; {@link #parse(String[])} reads the
+ * {@code key=value} arguments of the command line, the keys being the setter names without the {@code set} prefix.
+ */
+public class SoakConfig {
+
+    /**
+     * How the consumer spends the service time of an item
+     */
+    public enum WorkMode {
+        /**
+         * Spins on the CPU
+         */
+        CPU,
+        /**
+         * Parks the thread, as if waiting for a remote call
+         */
+        BLOCKING
+    }
+
+    private long                    seed                   = 42;
+    private long                    items                  = 100_000;
+    private long                    durationMillis         = 0;
+    private int                     fetchSize              = 100;
+    private long                    fetchLatencyMicros     = 1_000;
+    private double                  emptyPollRate          = 0.0;
+    private long                    pollIntervalMillis     = 10;
+    private int                     maxQueued              = 10_000;
+    private int                     consumerThreads        = 4;
+    private WorkMode                workMode               = WorkMode.BLOCKING;
+    private ServiceTimeDistribution serviceTime            = ServiceTimeDistribution.EXPONENTIAL;
+    private long                    serviceTimeMicros      = 100;
+    private double                  failureRate            = 0.0;
+    private int                     maxAttempts            = 1;
+    private int                     shutdownTimeoutSeconds = 60;
+
+    /**
+     * Creates a configuration from the {@code key=value} arguments, the missing keys keep their defaults
+     *
+     * @param args the arguments, e.g. {@code items=1000000 workMode=CPU failureRate=0.01}
+     * @return the configuration
+     */
+    public static SoakConfig parse(final String[] args) {
+        final SoakConfig config = new SoakConfig();
+        for (final String arg : args) {
+            final int separator = arg.indexOf('=');
+            if (separator < 1) {
+                throw new IllegalArgumentException("Expected key=value: " + arg);
+            }
+            config.set(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        return config;
+    }
+
+    private void set(final String key, final String value) {
+        switch (key) {
+            case "seed":
+                setSeed(Long.parseLong(value));
+                break;
+            case "items":
+                setItems(Long.parseLong(value));
+                break;
+            case "durationMillis":
+                setDurationMillis(Long.parseLong(value));
+                break;
+            case "fetchSize":
+                setFetchSize(Integer.parseInt(value));
+                break;
+            case "fetchLatencyMicros":
+                setFetchLatencyMicros(Long.parseLong(value));
+                break;
+            case "emptyPollRate":
+                setEmptyPollRate(Double.parseDouble(value));
+                break;
+            case "pollIntervalMillis":
+                setPollIntervalMillis(Long.parseLong(value));
+                break;
+            case "maxQueued":
+                setMaxQueued(Integer.parseInt(value));
+                break;
+            case "consumerThreads":
+                setConsumerThreads(Integer.parseInt(value));
+                break;
+            case "workMode":
+                setWorkMode(WorkMode.valueOf(value.toUpperCase(Locale.ROOT)));
+                break;
+            case "serviceTime":
+                setServiceTime(ServiceTimeDistribution.valueOf(value.toUpperCase(Locale.ROOT)));
+                break;
+            case "serviceTimeMicros":
+                setServiceTimeMicros(Long.parseLong(value));
+                break;
+            case "failureRate":
+                setFailureRate(Double.parseDouble(value));
+                break;
+            case "maxAttempts":
+                setMaxAttempts(Integer.parseInt(value));
+                break;
+            case "shutdownTimeoutSeconds":
+                setShutdownTimeoutSeconds(Integer.parseInt(value));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown key: " + key);
+        }
+    }
+
+    /**
+     * @param seed the seed all the synthetic values are derived from
+     * @return this configuration
+     */
+    public SoakConfig setSeed(final long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * @param items total number of items to produce, 0 for no limit (requires a duration)
+     * @return this configuration
+     */
+    public SoakConfig setItems(final long items) {
+        if (items < 0) {
+            throw new IllegalArgumentException("Invalid number of items: " + items);
+        }
+        this.items = items;
+        return this;
+    }
+
+    /**
+     * @param durationMillis maximum duration of the load phase, 0 for no limit (requires a number of items)
+     * @return this configuration
+     */
+    public SoakConfig setDurationMillis(final long durationMillis) {
+        if (durationMillis < 0) {
+            throw new IllegalArgumentException("Invalid duration: " + durationMillis);
+        }
+        this.durationMillis = durationMillis;
+        return this;
+    }
+
+    /**
+     * @param fetchSize number of items returned by a non-empty fetch
+     * @return this configuration
+     */
+    public SoakConfig setFetchSize(final int fetchSize) {
+        if (fetchSize < 1) {
+            throw new IllegalArgumentException("Invalid fetch size: " + fetchSize);
+        }
+        this.fetchSize = fetchSize;
+        return this;
+    }
+
+    /**
+     * @param fetchLatencyMicros time every fetch takes, the producer thread is parked meanwhile
+     * @return this configuration
+     */
+    public SoakConfig setFetchLatencyMicros(final long fetchLatencyMicros) {
+        if (fetchLatencyMicros < 0) {
+            throw new IllegalArgumentException("Invalid fetch latency: " + fetchLatencyMicros);
+        }
+        this.fetchLatencyMicros = fetchLatencyMicros;
+        return this;
+    }
+
+    /**
+     * @param emptyPollRate share of the fetches that return nothing, in the range of {@code [0, 1)}
+     * @return this configuration
+     */
+    public SoakConfig setEmptyPollRate(final double emptyPollRate) {
+        if (emptyPollRate < 0.0 || emptyPollRate >= 1.0) {
+            throw new IllegalArgumentException("Invalid empty poll rate: " + emptyPollRate);
+        }
+        this.emptyPollRate = emptyPollRate;
+        return this;
+    }
+
+    /**
+     * @param pollIntervalMillis pause after an empty fetch, or while the consumer has too many items queued
+     * @return this configuration
+     */
+    public SoakConfig setPollIntervalMillis(final long pollIntervalMillis) {
+        if (pollIntervalMillis < 0) {
+            throw new IllegalArgumentException("Invalid poll interval: " + pollIntervalMillis);
+        }
+        this.pollIntervalMillis = pollIntervalMillis;
+        return this;
+    }
+
+    /**
+     * @param maxQueued the next fetch waits while the consumer has more items queued
+     * @return this configuration
+     */
+    public SoakConfig setMaxQueued(final int maxQueued) {
+        if (maxQueued < 0) {
+            throw new IllegalArgumentException("Invalid queue limit: " + maxQueued);
+        }
+        this.maxQueued = maxQueued;
+        return this;
+    }
+
+    /**
+     * @param consumerThreads size of the consumer's thread pool
+     * @return this configuration
+     */
+    public SoakConfig setConsumerThreads(final int consumerThreads) {
+        if (consumerThreads < 1) {
+            throw new IllegalArgumentException("Invalid number of consumer threads: " + consumerThreads);
+        }
+        this.consumerThreads = consumerThreads;
+        return this;
+    }
+
+    /**
+     * @param workMode how the service time is spent
+     * @return this configuration
+     */
+    public SoakConfig setWorkMode(final WorkMode workMode) {
+        assert workMode != null;
+        this.workMode = workMode;
+        return this;
+    }
+
+    /**
+     * @param serviceTime the distribution of the service time of the items
+     * @return this configuration
+     */
+    public SoakConfig setServiceTime(final ServiceTimeDistribution serviceTime) {
+        assert serviceTime != null;
+        this.serviceTime = serviceTime;
+        return this;
+    }
+
+    /**
+     * @param serviceTimeMicros the mean service time
+     * @return this configuration
+     */
+    public SoakConfig setServiceTimeMicros(final long serviceTimeMicros) {
+        if (serviceTimeMicros < 0) {
+            throw new IllegalArgumentException("Invalid service time: " + serviceTimeMicros);
+        }
+        this.serviceTimeMicros = serviceTimeMicros;
+        return this;
+    }
+
+    /**
+     * @param failureRate probability of a processing attempt to fail, in the range of {@code [0, 1]}
+     * @return this configuration
+     */
+    public SoakConfig setFailureRate(final double failureRate) {
+        if (failureRate < 0.0 || failureRate > 1.0) {
+            throw new IllegalArgumentException("Invalid failure rate: " + failureRate);
+        }
+        this.failureRate = failureRate;
+        return this;
+    }
+
+    /**
+     * @param maxAttempts maximum number of the processing attempts of an item, retried without a backoff
+     * @return this configuration
+     */
+    public SoakConfig setMaxAttempts(final int maxAttempts) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("Invalid number of attempts: " + maxAttempts);
+        }
+        this.maxAttempts = maxAttempts;
+        return this;
+    }
+
+    /**
+     * @param shutdownTimeoutSeconds the consumer's shutdown timeout
+     * @return this configuration
+     */
+    public SoakConfig setShutdownTimeoutSeconds(final int shutdownTimeoutSeconds) {
+        if (shutdownTimeoutSeconds < 0) {
+            throw new IllegalArgumentException("Invalid shutdown timeout: " + shutdownTimeoutSeconds);
+        }
+        this.shutdownTimeoutSeconds = shutdownTimeoutSeconds;
+        return this;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public long getItems() {
+        return items;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    public long getFetchLatencyMicros() {
+        return fetchLatencyMicros;
+    }
+
+    public double getEmptyPollRate() {
+        return emptyPollRate;
+    }
+
+    public long getPollIntervalMillis() {
+        return pollIntervalMillis;
+    }
+
+    public int getMaxQueued() {
+        return maxQueued;
+    }
+
+    public int getConsumerThreads() {
+        return consumerThreads;
+    }
+
+    public WorkMode getWorkMode() {
+        return workMode;
+    }
+
+    public ServiceTimeDistribution getServiceTime() {
+        return serviceTime;
+    }
+
+    public long getServiceTimeMicros() {
+        return serviceTimeMicros;
+    }
+
+    public double getFailureRate() {
+        return failureRate;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public int getShutdownTimeoutSeconds() {
+        return shutdownTimeoutSeconds;
+    }
+
+    @Override
+    public String toString() {
+        return "{\"seed\":" + seed + ", \"items\":" + items + ", \"durationMillis\":" + durationMillis
+                + ", \"fetchSize\":" + fetchSize + ", \"fetchLatencyMicros\":" + fetchLatencyMicros
+                + ", \"emptyPollRate\":" + emptyPollRate + ", \"pollIntervalMillis\":" + pollIntervalMillis
+                + ", \"maxQueued\":" + maxQueued + ", \"consumerThreads\":" + consumerThreads
+                + ", \"workMode\":\"" + workMode + "\", \"serviceTime\":\"" + serviceTime
+                + "\", \"serviceTimeMicros\":" + serviceTimeMicros + ", \"failureRate\":" + failureRate
+                + ", \"maxAttempts\":" + maxAttempts + ", \"shutdownTimeoutSeconds\":" + shutdownTimeoutSeconds + "}";
+    }
+}
@@ -0,0 +1,110 @@
+package org.jcp.pc.soak;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.jcp.pc.base.executor.ProcessExecutor;
+import org.jcp.pc.base.metrics.ProcessMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs a {@link SyntheticProducer} and a {@link SyntheticConsumer} with a {@link ProcessExecutor}: the fetches are
+ * repeated in the calling thread till the configured number of items has been produced or the duration has elapsed,
+ * then the process is shut down. Once all the items have been produced, the shutdown waits for their completion, so
+ * the run with the same seed ends with the same outcome of every item. Once the duration has elapsed, the shutdown is
+ * requested right away and drains the items still queued, the retries pending at that moment are dead lettered. The fetches pause after an empty poll and while
+ * the consumer has too many items queued, so the heap is bounded by the queue limit rather than by the run length.
+ * <p>
+ * Can be started from the command line with the {@code key=value} arguments of {@link SoakConfig#parse(String[])},
+ * the report is printed to the standard output. Pinning the JVM to a fixed set of cores (e.g. with {@code taskset})
+ * and fixing the heap size makes the results comparable between the runs.
+ */
+public class SoakHarness {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SoakHarness.class);
+
+    private static final long HEAP_SAMPLING_MILLIS = 10;
+
+    private final SoakConfig config;
+
+    /**
+     * @param config the workload
+     */
+    public SoakHarness(final SoakConfig config) {
+        assert config != null;
+        if (config.getItems() == 0 && config.getDurationMillis() == 0) {
+            throw new IllegalArgumentException("Either the number of items or the duration has to be limited");
+        }
+        this.config = config;
+    }
+
+    /**
+     * Runs the workload, blocks till the process has shut down
+     *
+     * @return the report
+     */
+    public SoakReport run() {
+        LOG.info("Starting a soak run with {}", config);
+        final ProcessMetrics metrics = new ProcessMetrics();
+        final ExecutorService executorService = Executors.newFixedThreadPool(config.getConsumerThreads());
+        final SyntheticProducer producer = new SyntheticProducer(config, metrics);
+        final SyntheticConsumer consumer = new SyntheticConsumer(executorService, config, metrics);
+        final ProcessExecutor<SyntheticItem> process = new ProcessExecutor<SyntheticItem>(producer, consumer) {
+        };
+        final HeapSampler heap = new HeapSampler(HEAP_SAMPLING_MILLIS, TimeUnit.MILLISECONDS);
+        final long pollIntervalNanos = TimeUnit.MILLISECONDS.toNanos(config.getPollIntervalMillis());
+
+        heap.start();
+        final long start = System.nanoTime();
+        final long deadline = config.getDurationMillis() == 0
+                ? Long.MAX_VALUE : start + TimeUnit.MILLISECONDS.toNanos(config.getDurationMillis());
+        while (!producer.isExhausted() && System.nanoTime() - deadline < 0) {
+            if (metrics.getQueueDepth() > config.getMaxQueued()) {
+                LockSupport.parkNanos(pollIntervalNanos);
+                continue;
+            }
+            process.run();
+            if (producer.isLastPollEmpty()) {
+                LockSupport.parkNanos(pollIntervalNanos);
+            }
+        }
+        if (producer.isExhausted()) {
+            awaitCompletion(producer, consumer, metrics);
+        }
+        final long loadEnd = System.nanoTime();
+        final long queuedAtShutdown = metrics.getQueueDepth();
+
+        process.shutdown();
+        final long shutdownEnd = System.nanoTime();
+        final long heapHighWaterMark = heap.stop();
+
+        final SoakReport report = new SoakReport(producer.getProduced(), metrics.getSucceeded(),
+                consumer.getDeadLettered(), loadEnd - start, shutdownEnd - loadEnd, queuedAtShutdown, heapHighWaterMark,
+                consumer.getEndToEnd().snapshot(), consumer.getDeadLetterEndToEnd().snapshot(), metrics.snapshot());
+        LOG.info("Soak run finished: {}", report);
+        return report;
+    }
+
+    /**
+     * Waits till every produced item has either succeeded or been dead lettered, including the pending retries
+     */
+    private void awaitCompletion(final SyntheticProducer producer,
+            final SyntheticConsumer consumer,
+            final ProcessMetrics metrics) {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(config.getShutdownTimeoutSeconds());
+        while (metrics.getSucceeded() + consumer.getDeadLettered() < producer.getProduced()) {
+            if (System.nanoTime() - deadline > 0) {
+                LOG.warn("The produced items have not completed within {} seconds", config.getShutdownTimeoutSeconds());
+                return;
+            }
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+    }
+
+    public static void main(final String[] args) {
+        System.out.println(new SoakHarness(SoakConfig.parse(args)).run());
+    }
+}
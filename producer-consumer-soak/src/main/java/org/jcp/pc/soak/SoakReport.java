@@ -0,0 +1,132 @@
+package org.jcp.pc.soak;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jcp.metrics.HistogramSnapshot;
+import org.jcp.pc.base.metrics.ProcessMetricsSnapshot;
+
+/**
+ * The outcome of a soak run. The throughput counts the items completed, successfully or not, per second of the whole
+ * run including the shutdown, which may drain the items still queued at the end of the load phase.
+ */
+public class SoakReport {
+
+    private final long                   produced;
+    private final long                   succeeded;
+    private final long                   deadLettered;
+    private final long                   loadNanos;
+    private final long                   shutdownNanos;
+    private final long                   queuedAtShutdown;
+    private final long                   heapHighWaterMark;
+    private final HistogramSnapshot      endToEnd;
+    private final HistogramSnapshot      deadLetterEndToEnd;
+    private final ProcessMetricsSnapshot process;
+
+    SoakReport(final long produced,
+            final long succeeded,
+            final long deadLettered,
+            final long loadNanos,
+            final long shutdownNanos,
+            final long queuedAtShutdown,
+            final long heapHighWaterMark,
+            final HistogramSnapshot endToEnd,
+            final HistogramSnapshot deadLetterEndToEnd,
+            final ProcessMetricsSnapshot process) {
+        this.produced = produced;
+        this.succeeded = succeeded;
+        this.deadLettered = deadLettered;
+        this.loadNanos = loadNanos;
+        this.shutdownNanos = shutdownNanos;
+        this.queuedAtShutdown = queuedAtShutdown;
+        this.heapHighWaterMark = heapHighWaterMark;
+        this.endToEnd = endToEnd;
+        this.deadLetterEndToEnd = deadLetterEndToEnd;
+        this.process = process;
+    }
+
+    /**
+     * @return number of the items fetched by the producer
+     */
+    public long getProduced() {
+        return produced;
+    }
+
+    public long getSucceeded() {
+        return succeeded;
+    }
+
+    /**
+     * @return number of the items that have run out of attempts or have been dropped on the shutdown
+     */
+    public long getDeadLettered() {
+        return deadLettered;
+    }
+
+    /**
+     * @return the completed items per second of the whole run
+     */
+    public double getThroughput() {
+        final long total = loadNanos + shutdownNanos;
+        return total == 0 ? 0.0 : (succeeded + deadLettered) * (double) TimeUnit.SECONDS.toNanos(1) / total;
+    }
+
+    /**
+     * @return time from the first fetch till the shutdown request, in nanoseconds
+     */
+    public long getLoadNanos() {
+        return loadNanos;
+    }
+
+    /**
+     * @return time the shutdown of the producer and the consumer has taken, in nanoseconds
+     */
+    public long getShutdownNanos() {
+        return shutdownNanos;
+    }
+
+    /**
+     * @return number of the items waiting for the consumer when the shutdown has been requested
+     */
+    public long getQueuedAtShutdown() {
+        return queuedAtShutdown;
+    }
+
+    /**
+     * @return the highest used heap observed during the run, in bytes
+     */
+    public long getHeapHighWaterMark() {
+        return heapHighWaterMark;
+    }
+
+    /**
+     * @return distribution of the time from the fetch till the success of the items, in nanoseconds
+     */
+    public HistogramSnapshot getEndToEnd() {
+        return endToEnd;
+    }
+
+    /**
+     * @return distribution of the time from the fetch till the dead lettering of the items, in nanoseconds
+     */
+    public HistogramSnapshot getDeadLetterEndToEnd() {
+        return deadLetterEndToEnd;
+    }
+
+    /**
+     * @return the metrics of the producer and the consumer
+     */
+    public ProcessMetricsSnapshot getProcess() {
+        return process;
+    }
+
+    @Override
+    public String toString() {
+        return "{\"produced\":" + produced + ", \"succeeded\":" + succeeded + ", \"deadLettered\":" + deadLettered
+                + ", \"throughput\":" + String.format("%.1f", getThroughput())
+                + ", \"loadMillis\":" + TimeUnit.NANOSECONDS.toMillis(loadNanos)
+                + ", \"shutdownMillis\":" + TimeUnit.NANOSECONDS.toMillis(shutdownNanos)
+                + ", \"queuedAtShutdown\":" + queuedAtShutdown + ", \"heapHighWaterMark\":" + heapHighWaterMark
+                + ", \"endToEnd\":" + endToEnd + ", \"deadLetterEndToEnd\":" + deadLetterEndToEnd
+                + ", \"process\":" + process + "}";
+    }
+}
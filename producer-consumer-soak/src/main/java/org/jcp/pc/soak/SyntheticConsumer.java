@@ -0,0 +1,103 @@
+package org.jcp.pc.soak;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.jcp.metrics.LatencyHistogram;
+import org.jcp.pc.base.metrics.ProcessMetrics;
+import org.jcp.pc.base.process.WorkingConsumer;
+import org.jcp.pc.base.retry.RetryPolicy;
+
+/**
+ * Processes the {@link SyntheticItem}s: spends the service time of the item, either on the CPU or parked, and fails
+ * the attempt with the configured probability. The service time and the failures are derived from the item id and the
+ * attempt number. The failed items are retried without a backoff up to the configured number of attempts, then dead lettered.
+ * The end-to-end latency, from the fetch till the end of the last attempt, is recorded separately for the succeeded
+ * and for the dead lettered items, so the failures do not distort the latency of the successes.
+ */
+public class SyntheticConsumer extends WorkingConsumer<SyntheticItem> {
+
+    private static final long SERVICE_TIME_STREAM = 2;
+    private static final long FAILURE_STREAM      = 3;
+
+    private final SoakConfig       config;
+    private final LatencyHistogram endToEnd;
+    private final LatencyHistogram deadLetterEndToEnd;
+    private final LongAdder        deadLettered;
+
+    /**
+     * @param executorService the processing threads
+     * @param config          the workload
+     * @param metrics         the metrics shared with the producer
+     */
+    public SyntheticConsumer(final ExecutorService executorService,
+            final SoakConfig config,
+            final ProcessMetrics metrics) {
+        this(executorService, config, metrics, new LatencyHistogram(), new LongAdder());
+    }
+
+    private SyntheticConsumer(final ExecutorService executorService,
+            final SoakConfig config,
+            final ProcessMetrics metrics,
+            final LatencyHistogram deadLetterEndToEnd,
+            final LongAdder deadLettered) {
+        super(executorService, config.getShutdownTimeoutSeconds(), metrics,
+                new RetryPolicy(config.getMaxAttempts(), 0, 1.0, 0, TimeUnit.MILLISECONDS),
+                (item, cause, attempts) -> {
+                    deadLetterEndToEnd.recordSince(item.getCreatedAt());
+                    deadLettered.increment();
+                });
+        this.config = config;
+        this.endToEnd = new LatencyHistogram();
+        this.deadLetterEndToEnd = deadLetterEndToEnd;
+        this.deadLettered = deadLettered;
+    }
+
+    @Override
+    public void process(final SyntheticItem result) {
+        final int attempt = result.startAttempt();
+        // the attempts are spread over the stream, so every attempt of an item gets its own values
+        final long key = result.getId() * config.getMaxAttempts() + attempt;
+        final long serviceTime = config.getServiceTime().sample(TimeUnit.MICROSECONDS.toNanos(config.getServiceTimeMicros()),
+                SyntheticItem.uniform(config.getSeed(), SERVICE_TIME_STREAM, key));
+        if (config.getWorkMode() == SoakConfig.WorkMode.CPU) {
+            spin(serviceTime);
+        } else if (serviceTime > 0) {
+            LockSupport.parkNanos(serviceTime);
+        }
+        if (SyntheticItem.uniform(config.getSeed(), FAILURE_STREAM, key) < config.getFailureRate()) {
+            throw new IllegalStateException("Synthetic failure of " + result);
+        }
+        endToEnd.recordSince(result.getCreatedAt());
+    }
+
+    private static void spin(final long nanos) {
+        final long deadline = System.nanoTime() + nanos;
+        while (System.nanoTime() < deadline) {
+            // burns the CPU, the clock reads keep the loop from being optimized away
+        }
+    }
+
+    /**
+     * @return the end-to-end latency of the succeeded items, in nanoseconds
+     */
+    public LatencyHistogram getEndToEnd() {
+        return endToEnd;
+    }
+
+    /**
+     * @return the end-to-end latency of the dead lettered items, in nanoseconds
+     */
+    public LatencyHistogram getDeadLetterEndToEnd() {
+        return deadLetterEndToEnd;
+    }
+
+    /**
+     * @return number of the items that have run out of attempts or have been dropped on the shutdown
+     */
+    public long getDeadLettered() {
+        return deadLettered.sum();
+    }
+}
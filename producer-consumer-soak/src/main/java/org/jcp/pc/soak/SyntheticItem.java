@@ -0,0 +1,59 @@
+package org.jcp.pc.soak;
+
+/**
+ * An item produced by the {@link SyntheticProducer}, carries its creation time for the end-to-end latency
+ */
+public class SyntheticItem {
+
+    private final long id;
+    private final long createdAt;
+
+    /**
+     * Number of the processing attempts made, the attempts of an item never overlap
+     */
+    private volatile int attempts;
+
+    SyntheticItem(final long id, final long createdAt) {
+        this.id = id;
+        this.createdAt = createdAt;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * @return the {@link System#nanoTime()} of the item creation
+     */
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * @return the number of the attempt being started, starting with 1
+     */
+    int startAttempt() {
+        return ++attempts;
+    }
+
+    /**
+     * Derives a value uniformly distributed in the range of {@code [0, 1)} from the inputs only, a SplitMix64 mix
+     *
+     * @param seed   the seed of the run
+     * @param stream distinguishes the values drawn for the different purposes
+     * @param value  the id of the item or the fetch
+     * @return the value
+     */
+    static double uniform(final long seed, final long stream, final long value) {
+        long z = seed + stream * 0x9E3779B97F4A7C15L + value * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z = z ^ (z >>> 31);
+        return (z >>> 11) * 0x1.0p-53;
+    }
+
+    @Override
+    public String toString() {
+        return "{\"id\":" + id + ", \"attempts\":" + attempts + "}";
+    }
+}
@@ -0,0 +1,90 @@
+package org.jcp.pc.soak;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.jcp.pc.base.metrics.ProcessMetrics;
+import org.jcp.pc.base.process.Producer;
+
+/**
+ * Produces the {@link SyntheticItem}s: every fetch takes the configured latency, then either returns nothing (an
+ * empty poll) or the next fetch size of items, until the configured number of items has been produced. The empty polls
+ * are chosen by the fetch number, so the runs with the same seed see the same sequence of the fetch results.
+ */
+public class SyntheticProducer extends Producer<SyntheticItem> {
+
+    private static final long EMPTY_POLL_STREAM = 1;
+
+    private final SoakConfig config;
+
+    /**
+     * Only accessed by the fetching thread, {@link Producer#acquireTasks} does not allow concurrent fetches
+     */
+    private long fetches;
+    private long nextId;
+
+    private volatile boolean lastPollEmpty;
+    private volatile boolean exhausted;
+
+    /**
+     * @param config  the workload
+     * @param metrics the metrics shared with the consumer
+     */
+    public SyntheticProducer(final SoakConfig config, final ProcessMetrics metrics) {
+        super(e -> {
+            throw e;
+        }, metrics);
+        this.config = config;
+    }
+
+    @Override
+    public Collection<SyntheticItem> fetch() {
+        if (config.getFetchLatencyMicros() > 0) {
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(config.getFetchLatencyMicros()));
+        }
+        final long fetch = fetches++;
+        final long remaining = config.getItems() == 0 ? Long.MAX_VALUE : config.getItems() - nextId;
+        if (remaining <= 0) {
+            exhausted = true;
+        }
+        lastPollEmpty = remaining <= 0
+                || SyntheticItem.uniform(config.getSeed(), EMPTY_POLL_STREAM, fetch) < config.getEmptyPollRate();
+        if (lastPollEmpty) {
+            return Collections.emptyList();
+        }
+
+        final int size = (int) Math.min(config.getFetchSize(), remaining);
+        final long createdAt = System.nanoTime();
+        final List<SyntheticItem> items = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            items.add(new SyntheticItem(nextId++, createdAt));
+        }
+        exhausted = nextId == config.getItems();
+        return items;
+    }
+
+    /**
+     * @return whether the last fetch has returned nothing
+     */
+    public boolean isLastPollEmpty() {
+        return lastPollEmpty;
+    }
+
+    /**
+     * @return whether the configured number of items has been produced
+     */
+    public boolean isExhausted() {
+        return exhausted;
+    }
+
+    /**
+     * @return number of the items produced so far
+     */
+    public long getProduced() {
+        return nextId;
+    }
+}
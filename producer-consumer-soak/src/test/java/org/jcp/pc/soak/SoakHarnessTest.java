@@ -0,0 +1,60 @@
+package org.jcp.pc.soak;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SoakHarnessTest {
+
+    @Test
+    public void testAllItemsAreCompleted() {
+        final SoakConfig config = new SoakConfig()
+                .setItems(2000)
+                .setFetchSize(50)
+                .setFetchLatencyMicros(100)
+                .setEmptyPollRate(0.2)
+                .setPollIntervalMillis(1)
+                .setMaxQueued(200)
+                .setServiceTimeMicros(50)
+                .setFailureRate(0.1)
+                .setMaxAttempts(2);
+
+        final SoakReport report = new SoakHarness(config).run();
+
+        Assert.assertEquals(2000, report.getProduced());
+        Assert.assertEquals(2000, report.getSucceeded() + report.getDeadLettered());
+        Assert.assertTrue(report.getDeadLettered() > 0);
+        Assert.assertEquals(report.getSucceeded(), report.getEndToEnd().getCount());
+        Assert.assertEquals(report.getDeadLettered(), report.getDeadLetterEndToEnd().getCount());
+        Assert.assertTrue(report.getThroughput() > 0);
+        Assert.assertTrue(report.getHeapHighWaterMark() > 0);
+        Assert.assertTrue(report.getProcess().getFetchCount() > 2000 / 50);
+    }
+
+    @Test
+    public void testSameSeedSameWorkload() {
+        final SoakConfig config = new SoakConfig()
+                .setSeed(7)
+                .setItems(1000)
+                .setFetchLatencyMicros(0)
+                .setEmptyPollRate(0.3)
+                .setPollIntervalMillis(0)
+                .setWorkMode(SoakConfig.WorkMode.CPU)
+                .setServiceTime(ServiceTimeDistribution.PARETO)
+                .setServiceTimeMicros(10)
+                .setFailureRate(0.2)
+                .setMaxAttempts(3);
+
+        final SoakReport first = new SoakHarness(config).run();
+        final SoakReport second = new SoakHarness(config).run();
+
+        Assert.assertEquals(first.getProcess().getFetchCount(), second.getProcess().getFetchCount());
+        Assert.assertEquals(first.getProcess().getRetried(), second.getProcess().getRetried());
+        Assert.assertEquals(first.getDeadLettered(), second.getDeadLettered());
+        Assert.assertEquals(first.getSucceeded(), second.getSucceeded());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnboundedRunIsRejected() {
+        new SoakHarness(SoakConfig.parse(new String[]{"items=0", "durationMillis=0"}));
+    }
+}
@@ -0,0 +1,202 @@
+package org.jcp.pc.base.dedup;
+
+/**
+ * A thread safe set of primitive {@code long} values. The values are spread over a number of independently locked
+ * segments, each one is an open addressing hash table with linear probing, so neither boxing nor per-entry allocations
+ * take place and the concurrent callers rarely contend for the same lock.
+ */
+public class ConcurrentLongSet {
+
+    private static final int DEFAULT_SEGMENTS = 64;
+
+    private final Segment[] segments;
+    private final int       segmentMask;
+
+    /**
+     * Creates a set with the number of segments based on the available processors
+     */
+    public ConcurrentLongSet() {
+        this(Math.max(DEFAULT_SEGMENTS, Runtime.getRuntime().availableProcessors() * 4));
+    }
+
+    /**
+     * Creates a set
+     *
+     * @param concurrencyLevel the expected number of concurrently modifying threads, rounded up to the next power of two
+     */
+    public ConcurrentLongSet(final int concurrencyLevel) {
+        final int size = Integer.highestOneBit(Math.max(1, concurrencyLevel - 1) << 1);
+        this.segments = new Segment[size];
+        this.segmentMask = size - 1;
+        for (int i = 0; i < size; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    /**
+     * @param value to be added
+     * @return {@code true} if the value was not present in the set
+     */
+    public boolean add(final long value) {
+        final int hash = mix(value);
+        return segments[hash & segmentMask].add(value, hash);
+    }
+
+    /**
+     * @param value to be removed
+     * @return {@code true} if the value was present in the set
+     */
+    public boolean remove(final long value) {
+        final int hash = mix(value);
+        return segments[hash & segmentMask].remove(value, hash);
+    }
+
+    /**
+     * @param value to be looked up
+     * @return {@code true} if the value is present in the set
+     */
+    public boolean contains(final long value) {
+        final int hash = mix(value);
+        return segments[hash & segmentMask].contains(value, hash);
+    }
+
+    /**
+     * @return the number of values, not atomic with regard to the concurrent modifications
+     */
+    public int size() {
+        int size = 0;
+        for (final Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * Spreads the bits of the value (the murmur3 finalizer), so that the sequential ids are distributed evenly
+     */
+    private static int mix(final long value) {
+        long h = value;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    /**
+     * A single open addressing table. The zero value is used as the "free slot" marker, so it is tracked separately.
+     */
+    private static class Segment {
+
+        private static final int INITIAL_CAPACITY = 16;
+
+        private long[]  table;
+        private int     size;
+        private boolean containsZero;
+
+        private Segment() {
+            this.table = new long[INITIAL_CAPACITY];
+        }
+
+        synchronized boolean add(final long value, final int hash) {
+            if (value == 0) {
+                final boolean added = !containsZero;
+                containsZero = true;
+                return added;
+            }
+            final int mask = table.length - 1;
+            int index = slot(hash, mask);
+            while (table[index] != 0) {
+                if (table[index] == value) {
+                    return false;
+                }
+                index = (index + 1) & mask;
+            }
+            table[index] = value;
+            if (++size * 2 > table.length) {
+                resize();
+            }
+            return true;
+        }
+
+        synchronized boolean remove(final long value, final int hash) {
+            if (value == 0) {
+                final boolean removed = containsZero;
+                containsZero = false;
+                return removed;
+            }
+            final int mask = table.length - 1;
+            int index = slot(hash, mask);
+            while (table[index] != value) {
+                if (table[index] == 0) {
+                    return false;
+                }
+                index = (index + 1) & mask;
+            }
+            table[index] = 0;
+            size--;
+            shiftBack(index, mask);
+            return true;
+        }
+
+        synchronized boolean contains(final long value, final int hash) {
+            if (value == 0) {
+                return containsZero;
+            }
+            final int mask = table.length - 1;
+            int index = slot(hash, mask);
+            while (table[index] != 0) {
+                if (table[index] == value) {
+                    return true;
+                }
+                index = (index + 1) & mask;
+            }
+            return false;
+        }
+
+        synchronized int size() {
+            return containsZero ? size + 1 : size;
+        }
+
+        /**
+         * Closes the gap left by a removed value, so that the probe sequences stay unbroken without tombstones
+         */
+        private void shiftBack(final int removed, final int mask) {
+            int gap = removed;
+            int index = (removed + 1) & mask;
+            while (table[index] != 0) {
+                final int home = slot(mix(table[index]), mask);
+                // move the value if its home slot is not within (gap, index]
+                if (((index - home) & mask) >= ((index - gap) & mask)) {
+                    table[gap] = table[index];
+                    table[index] = 0;
+                    gap = index;
+                }
+                index = (index + 1) & mask;
+            }
+        }
+
+        private void resize() {
+            final long[] old = table;
+            table = new long[old.length << 1];
+            final int mask = table.length - 1;
+            for (final long value : old) {
+                if (value != 0) {
+                    int index = slot(mix(value), mask);
+                    while (table[index] != 0) {
+                        index = (index + 1) & mask;
+                    }
+                    table[index] = value;
+                }
+            }
+        }
+
+        /**
+         * The segment is selected by the low bits of the hash, so the slot is taken from the high ones
+         */
+        private static int slot(final int hash, final int mask) {
+            return Integer.rotateLeft(hash, 16) & mask;
+        }
+    }
+}
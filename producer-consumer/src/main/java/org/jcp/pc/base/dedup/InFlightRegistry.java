@@ -0,0 +1,64 @@
+package org.jcp.pc.base.dedup;
+
+import java.util.function.ToLongFunction;
+
+import org.jcp.pc.base.process.CompletionListener;
+
+/**
+ * Keeps track of the items that have been handed over to the {@link org.jcp.pc.base.process.WorkingConsumer} and are
+ * not completed yet. Used by the {@link org.jcp.pc.base.process.Producer} to drop the items that are returned by
+ * overlapping fetch cycles while still being processed.
+ *
+ * @param <T> the supported type
+ */
+public class InFlightRegistry<T> implements CompletionListener<T> {
+
+    private final ToLongFunction<? super T> idExtractor;
+    private final ConcurrentLongSet         ids;
+
+    /**
+     * Creates a registry
+     *
+     * @param idExtractor provides the unique id of an item
+     */
+    public InFlightRegistry(final ToLongFunction<? super T> idExtractor) {
+        assert idExtractor != null;
+        this.idExtractor = idExtractor;
+        this.ids = new ConcurrentLongSet();
+    }
+
+    /**
+     * Registers the item as being in flight
+     *
+     * @param item the item to be handed over
+     * @return {@code false} if an item with the same id is already in flight
+     */
+    public boolean register(final T item) {
+        return ids.add(idExtractor.applyAsLong(item));
+    }
+
+    /**
+     * Releases the item, so that it is accepted again with a later fetch
+     *
+     * @param item the completed item
+     */
+    @Override
+    public void completed(final T item) {
+        ids.remove(idExtractor.applyAsLong(item));
+    }
+
+    /**
+     * @param item the item to be checked
+     * @return whether an item with the same id is in flight
+     */
+    public boolean isInFlight(final T item) {
+        return ids.contains(idExtractor.applyAsLong(item));
+    }
+
+    /**
+     * @return number of the items in flight
+     */
+    public int size() {
+        return ids.size();
+    }
+}
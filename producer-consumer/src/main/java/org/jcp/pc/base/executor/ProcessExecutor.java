@@ -1,20 +1,24 @@
 package org.jcp.pc.base.executor;
 
+import java.util.concurrent.CompletableFuture;
+
+import org.jcp.pc.base.process.ItemConsumer;
 import org.jcp.pc.base.process.Producer;
 import org.jcp.pc.base.process.WorkingConsumer;
 
 /**
- * Default executor, accepts the {@link Producer} and {@link WorkingConsumer} instances and orchestrates executions
+ * Default executor, accepts the {@link Producer} and {@link ItemConsumer} (usually a {@link WorkingConsumer}) instances
+ * and orchestrates executions
  *
  * @param <T> supported type
  */
 public abstract class ProcessExecutor<T> {
 
-    private final Producer<T>        producer;
-    private final WorkingConsumer<T> consumer;
+    private final Producer<T>     producer;
+    private final ItemConsumer<T> consumer;
 
     public ProcessExecutor(final Producer<T> producer,
-            final WorkingConsumer<T> consumer) {
+            final ItemConsumer<T> consumer) {
         this.producer = producer;
         this.consumer = consumer;
     }
@@ -23,8 +27,23 @@ public abstract class ProcessExecutor<T> {
         producer.acquireTasks(consumer);
     }
 
+    /**
+     * Shuts the producer and the consumer down and waits for the both to finish
+     */
     public void shutdown() {
-        producer.requestShutdown();
-        consumer.requestShutdown();
+        shutdownAsync().join();
+    }
+
+    /**
+     * Shuts the producer and the consumer down in parallel: the consumer starts draining the already scheduled items
+     * while the producer finishes its processing loop. Items the producer offers after the consumer has stopped
+     * accepting are left to the next fetch.
+     *
+     * @return completes once the both have finished
+     */
+    public CompletableFuture<Void> shutdownAsync() {
+        final CompletableFuture<Void> producerDrain = producer.shutdownAsync();
+        final CompletableFuture<Void> consumerTermination = consumer.shutdownAsync();
+        return CompletableFuture.allOf(producerDrain, consumerTermination);
     }
 }
@@ -0,0 +1,21 @@
+package org.jcp.pc.base.journal;
+
+/**
+ * Converts the items to the binary form stored in the {@link Journal} and back
+ *
+ * @param <T> the supported type
+ */
+public interface ItemSerializer<T> {
+
+    /**
+     * @param item to be stored
+     * @return the binary representation
+     */
+    byte[] serialize(T item);
+
+    /**
+     * @param bytes the binary representation created by {@link #serialize(Object)}
+     * @return the restored item
+     */
+    T deserialize(byte[] bytes);
+}
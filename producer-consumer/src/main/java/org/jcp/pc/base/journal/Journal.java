@@ -0,0 +1,386 @@
+package org.jcp.pc.base.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A local write-ahead log of the items handed over to the {@link org.jcp.pc.base.process.WorkingConsumer}. Every item
+ * is appended before it is scheduled and acknowledged once it is completed, so the items that were queued or being
+ * processed when the application stopped can be replayed on the next start.
+ * <p>
+ * The log consists of fixed size, memory-mapped segment files. A record is written into the mapped buffer and its type
+ * byte is written last, so a record that has not been started reads as the end of the segment. Every record carries a
+ * CRC of its content, the recovery stops reading a segment at the first record that is torn or corrupted. The oldest segment is deleted as
+ * soon as all its items are acknowledged. Note that the mapped memory is flushed to the disk by the operating system,
+ * call {@link #sync()} if the items have to survive a power loss as well.
+ *
+ * @param <T> the supported type
+ */
+public class Journal<T> implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(Journal.class);
+
+    private static final int    DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+    private static final String SEGMENT_PREFIX       = "segment-";
+    private static final String SEGMENT_SUFFIX       = ".log";
+
+    private static final byte RECORD_END  = 0;
+    private static final byte RECORD_ITEM = 1;
+    private static final byte RECORD_ACK  = 2;
+
+    /**
+     * type (byte), payload length (int), item id (long), CRC32 of the other header fields and the payload (int)
+     */
+    private static final int HEADER_SIZE = 1 + 4 + 8 + 4;
+
+    private final Path              directory;
+    private final ItemSerializer<T> serializer;
+    private final int               segmentSize;
+    private final Deque<Segment>    segments;
+
+    private List<Entry<T>> recovered;
+    private Segment        active;
+    private long           nextId;
+    private long           nextSegmentIndex;
+    private boolean        closed;
+
+    /**
+     * Opens the journal with 64 MB segments
+     *
+     * @param directory  the journal directory, created if does not exist
+     * @param serializer converts the items
+     */
+    public Journal(final Path directory, final ItemSerializer<T> serializer) {
+        this(directory, serializer, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Opens the journal, the unacknowledged items found in the directory are available via {@link #recover()}
+     *
+     * @param directory   the journal directory, created if does not exist
+     * @param serializer  converts the items
+     * @param segmentSize size of a segment file in bytes, limits the maximum item size as well
+     */
+    public Journal(final Path directory, final ItemSerializer<T> serializer, final int segmentSize) {
+        assert directory != null;
+        assert serializer != null;
+        if (segmentSize <= HEADER_SIZE) {
+            throw new IllegalArgumentException("Segment size is too small: " + segmentSize);
+        }
+        this.directory = directory;
+        this.serializer = serializer;
+        this.segmentSize = segmentSize;
+        this.segments = new ArrayDeque<>();
+        try {
+            Files.createDirectories(directory);
+            load();
+            active = openSegment();
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Failed to open the journal in " + directory, e);
+        }
+    }
+
+    /**
+     * Appends the item to the journal
+     *
+     * @param item to be stored
+     * @return the id of the record, required for the acknowledgement
+     */
+    public long append(final T item) {
+        final byte[] payload = serializer.serialize(item);
+        synchronized (this) {
+            checkOpen();
+            // roll the segment before taking the id, so that the id falls into the range of the segment it is stored in
+            ensureCapacity(HEADER_SIZE + payload.length);
+            final long id = nextId++;
+            write(RECORD_ITEM, id, payload);
+            active.lastId = id;
+            active.outstanding++;
+            return id;
+        }
+    }
+
+    /**
+     * Marks the item as completed, so that it is not replayed anymore
+     *
+     * @param id the id returned by {@link #append(Object)} or {@link Entry#getId()}
+     */
+    public synchronized void acknowledge(final long id) {
+        if (closed) {
+            // the item stays in the journal and will be replayed
+            return;
+        }
+        write(RECORD_ACK, id, new byte[0]);
+        for (final Segment segment : segments) {
+            if (id >= segment.firstId && id <= segment.lastId) {
+                segment.outstanding--;
+                break;
+            }
+        }
+        deleteCompletedSegments();
+    }
+
+    /**
+     * Hands over the items that had not been acknowledged before the journal was opened. The items are returned only
+     * once, they are expected to be re-processed and acknowledged with their original ids.
+     *
+     * @return the unacknowledged items in the order they were appended
+     */
+    public synchronized List<Entry<T>> recover() {
+        final List<Entry<T>> result = recovered;
+        recovered = Collections.emptyList();
+        return result;
+    }
+
+    /**
+     * Forces the active segment to the storage device
+     */
+    public synchronized void sync() {
+        if (!closed) {
+            active.buffer.force();
+        }
+    }
+
+    /**
+     * @return number of the appended but not acknowledged items
+     */
+    public synchronized long getPending() {
+        long pending = 0;
+        for (final Segment segment : segments) {
+            pending += segment.outstanding;
+        }
+        return pending;
+    }
+
+    /**
+     * Flushes and closes the segments, the unacknowledged items are kept for the next start
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        active.buffer.force();
+        for (final Segment segment : segments) {
+            segment.close();
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("The journal has been closed");
+        }
+    }
+
+    private void ensureCapacity(final int size) {
+        if (size > segmentSize) {
+            throw new IllegalArgumentException("Record of " + size + " bytes does not fit into a journal segment");
+        }
+        if (active.buffer.remaining() < size) {
+            active.buffer.force();
+            active = openSegment();
+        }
+    }
+
+    private void write(final byte type, final long id, final byte[] payload) {
+        ensureCapacity(HEADER_SIZE + payload.length);
+        final MappedByteBuffer buffer = active.buffer;
+        final int position = buffer.position();
+        buffer.putInt(position + 1, payload.length);
+        buffer.putLong(position + 5, id);
+        // cast to Buffer, the covariant ByteBuffer overrides of JDK 9+ do not exist on a Java 8 runtime
+        ((Buffer) buffer).position(position + HEADER_SIZE);
+        buffer.put(payload);
+        buffer.putInt(position + 13, checksum(type, buffer, position, payload.length));
+        // the type makes the record visible for the recovery, so it goes last
+        buffer.put(position, type);
+    }
+
+    /**
+     * Calculates the CRC32 of the record type, the payload length, the item id and the payload
+     *
+     * @param type     the record type
+     * @param buffer   the segment buffer
+     * @param position the record position
+     * @param length   the payload length
+     * @return the checksum
+     */
+    private static int checksum(final byte type, final ByteBuffer buffer, final int position, final int length) {
+        final CRC32 crc = new CRC32();
+        crc.update(type);
+        final ByteBuffer fields = buffer.duplicate();
+        ((Buffer) fields).position(position + 1);
+        ((Buffer) fields).limit(position + 13);
+        crc.update(fields);
+        ((Buffer) fields).limit(position + HEADER_SIZE + length);
+        ((Buffer) fields).position(position + HEADER_SIZE);
+        crc.update(fields);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Deletes the fully acknowledged segments from the head of the log. A segment may contain acknowledgements of the
+     * items stored in the older segments, so a segment is never deleted before the older ones.
+     */
+    private void deleteCompletedSegments() {
+        Segment head = segments.peekFirst();
+        while (head != null && head != active && head.outstanding == 0) {
+            segments.pollFirst();
+            head.close();
+            try {
+                Files.deleteIfExists(head.path);
+            } catch (final IOException e) {
+                LOG.warn("Failed to delete the journal segment {}", head.path, e);
+            }
+            head = segments.peekFirst();
+        }
+    }
+
+    private Segment openSegment() {
+        final Path path = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, nextSegmentIndex++, SEGMENT_SUFFIX));
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            file.setLength(segmentSize);
+            final MappedByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+            final Segment segment = new Segment(path, buffer, nextId);
+            segments.addLast(segment);
+            return segment;
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Failed to create the journal segment " + path, e);
+        }
+    }
+
+    /**
+     * Reads the existing segments and collects the unacknowledged items
+     */
+    private void load() throws IOException {
+        final List<Path> paths = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            stream.forEach(paths::add);
+        }
+        Collections.sort(paths);
+
+        final Map<Long, byte[]> items = new LinkedHashMap<>();
+        final Map<Long, Segment> owners = new LinkedHashMap<>();
+        for (final Path path : paths) {
+            final String name = path.getFileName().toString();
+            final long index = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+            nextSegmentIndex = Math.max(nextSegmentIndex, index + 1);
+
+            final MappedByteBuffer buffer;
+            try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+                buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, file.length());
+            }
+            final Segment segment = new Segment(path, buffer, Long.MAX_VALUE);
+            segments.addLast(segment);
+
+            while (buffer.remaining() >= HEADER_SIZE) {
+                final int position = buffer.position();
+                final byte type = buffer.get(position);
+                if (type == RECORD_END) {
+                    break;
+                }
+                final int length = buffer.getInt(position + 1);
+                if ((type != RECORD_ITEM && type != RECORD_ACK) || length < 0 || length > buffer.remaining() - HEADER_SIZE
+                        || buffer.getInt(position + 13) != checksum(type, buffer, position, length)) {
+                    // torn by a crash, the records that follow (if any) cannot be located reliably
+                    LOG.warn("Invalid journal record at {} in {}, the rest of the segment is skipped", position, path);
+                    break;
+                }
+                final long id = buffer.getLong(position + 5);
+                ((Buffer) buffer).position(position + HEADER_SIZE);
+                if (type == RECORD_ITEM) {
+                    final byte[] payload = new byte[length];
+                    buffer.get(payload);
+                    items.put(id, payload);
+                    owners.put(id, segment);
+                    segment.firstId = Math.min(segment.firstId, id);
+                    segment.lastId = Math.max(segment.lastId, id);
+                } else {
+                    items.remove(id);
+                    owners.remove(id);
+                }
+                nextId = Math.max(nextId, id + 1);
+            }
+        }
+
+        final List<Entry<T>> entries = new ArrayList<>(items.size());
+        for (final Map.Entry<Long, byte[]> item : items.entrySet()) {
+            owners.get(item.getKey()).outstanding++;
+            entries.add(new Entry<>(item.getKey(), serializer.deserialize(item.getValue())));
+        }
+        recovered = entries;
+        if (!entries.isEmpty()) {
+            LOG.info("Recovered {} unacknowledged items from the journal {}", entries.size(), directory);
+        }
+        deleteCompletedSegments();
+    }
+
+    /**
+     * A recovered journal item
+     *
+     * @param <T> the supported type
+     */
+    public static class Entry<T> {
+        private final long id;
+        private final T    item;
+
+        Entry(final long id, final T item) {
+            this.id = id;
+            this.item = item;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public T getItem() {
+            return item;
+        }
+    }
+
+    /**
+     * A single segment file along with the range of item ids it contains and the number of unacknowledged ones
+     */
+    private static class Segment {
+        private final Path             path;
+        private final MappedByteBuffer buffer;
+        private long                   firstId;
+        private long                   lastId;
+        private int                    outstanding;
+
+        private Segment(final Path path, final MappedByteBuffer buffer, final long firstId) {
+            this.path = path;
+            this.buffer = buffer;
+            this.firstId = firstId;
+            this.lastId = -1;
+        }
+
+        /**
+         * The mapping itself is released by the garbage collector, there is no public API to unmap it before Java 9
+         */
+        private void close() {
+            buffer.force();
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package org.jcp.pc.base.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.ObjectName;
+
+import org.jcp.metrics.HistogramSnapshot;
+import org.jcp.metrics.JmxSupport;
+import org.jcp.metrics.LatencyHistogram;
+
+/**
+ * Low overhead instrumentation of a {@link org.jcp.pc.base.process.Producer} - {@link org.jcp.pc.base.process.WorkingConsumer}
+ * pair. Counters are striped ({@link LongAdder}) and the histograms are lock-free, so the recording never serializes
+ * the worker threads. Share a single instance between the producer and the consumer to get the complete picture.
+ */
+public class ProcessMetrics implements ProcessMetricsMXBean {
+
+    private final LatencyHistogram fetchDuration;
+    private final LatencyHistogram fetchSize;
+    private final LatencyHistogram handoffWait;
+    private final LatencyHistogram processLatency;
+    private final LongAdder        fetchedItems;
+    private final LongAdder        submitted;
+    private final LongAdder        started;
+    private final LongAdder        succeeded;
+    private final LongAdder        failed;
+    private final LongAdder        rejected;
+    private final LongAdder        admitted;
+    private final LongAdder        retried;
+    private final LongAdder        deadLettered;
+    private final LongAdder        deduplicated;
+
+    public ProcessMetrics() {
+        this.fetchDuration = new LatencyHistogram();
+        this.fetchSize = new LatencyHistogram();
+        this.handoffWait = new LatencyHistogram();
+        this.processLatency = new LatencyHistogram();
+        this.fetchedItems = new LongAdder();
+        this.submitted = new LongAdder();
+        this.started = new LongAdder();
+        this.succeeded = new LongAdder();
+        this.failed = new LongAdder();
+        this.rejected = new LongAdder();
+        this.admitted = new LongAdder();
+        this.retried = new LongAdder();
+        this.deadLettered = new LongAdder();
+        this.deduplicated = new LongAdder();
+    }
+
+    /**
+     * Records a finished fetch call
+     *
+     * @param startNanos the {@link System#nanoTime()} reading taken before the fetch
+     * @param size       number of fetched items
+     */
+    public void fetchCompleted(final long startNanos, final int size) {
+        fetchDuration.recordSince(startNanos);
+        fetchSize.record(size);
+        fetchedItems.add(size);
+    }
+
+    /**
+     * Records an item hand over to the consumer
+     *
+     * @return the hand over timestamp, to be passed to {@link #processingStarted(long)}
+     */
+    public long itemSubmitted() {
+        submitted.increment();
+        return System.nanoTime();
+    }
+
+    /**
+     * Records an item that has been submitted but was not accepted by the executor
+     */
+    public void itemRejected() {
+        rejected.increment();
+        submitted.decrement();
+    }
+
+    /**
+     * Records an item that has been submitted and then admitted by a consumer processing it outside of these metrics,
+     * e.g. by a pipeline. The submission is taken back, the wait for the admission is recorded as the hand over wait.
+     *
+     * @param submittedNanos the value returned by {@link #itemSubmitted()}
+     */
+    public void itemAdmitted(final long submittedNanos) {
+        handoffWait.recordSince(submittedNanos);
+        admitted.increment();
+        submitted.decrement();
+    }
+
+    /**
+     * Records the processing start of an item
+     *
+     * @param submittedNanos the value returned by {@link #itemSubmitted()}
+     * @return the processing start timestamp, to be passed to {@link #processingCompleted(long, boolean)}
+     */
+    public long processingStarted(final long submittedNanos) {
+        final long now = System.nanoTime();
+        started.increment();
+        handoffWait.record(now - submittedNanos);
+        return now;
+    }
+
+    /**
+     * Records the processing end of an item
+     *
+     * @param startedNanos the value returned by {@link #processingStarted(long)}
+     * @param success      whether the processing has completed normally
+     */
+    public void processingCompleted(final long startedNanos, final boolean success) {
+        processLatency.recordSince(startedNanos);
+        if (success) {
+            succeeded.increment();
+        } else {
+            failed.increment();
+        }
+    }
+
+    /**
+     * Records a failed item that has been scheduled for a retry
+     */
+    public void itemRetried() {
+        retried.increment();
+    }
+
+    /**
+     * Records a failed item that has been passed to the dead letter handler
+     */
+    public void itemDeadLettered() {
+        deadLettered.increment();
+    }
+
+    /**
+     * Records a fetched item that has been dropped because it is still in flight
+     */
+    public void itemDeduplicated() {
+        deduplicated.increment();
+    }
+
+    /**
+     * Takes a point-in-time copy of all the metrics
+     *
+     * @return the snapshot
+     */
+    public ProcessMetricsSnapshot snapshot() {
+        return new ProcessMetricsSnapshot(getFetchCount(), getFetchedItems(), getFetchDuration(), getFetchSize(),
+                getHandoffWait(), getProcessLatency(), getQueueDepth(), getInFlight(), getSucceeded(), getFailed(),
+                getRejected(), getAdmitted(), getRetried(), getDeadLettered(),
+                getDeduplicated());
+    }
+
+    /**
+     * Exposes the metrics via JMX under {@code org.jcp.pc:type=ProcessMetrics,name=<name>}
+     *
+     * @param name distinguishes the process from the others within the JVM
+     * @return the registered {@link ObjectName}, required for unregistering
+     */
+    public ObjectName registerMBean(final String name) {
+        return JmxSupport.register(this, "org.jcp.pc:type=ProcessMetrics,name=" + ObjectName.quote(name));
+    }
+
+    @Override
+    public long getFetchCount() {
+        return fetchDuration.getCount();
+    }
+
+    @Override
+    public long getFetchedItems() {
+        return fetchedItems.sum();
+    }
+
+    @Override
+    public HistogramSnapshot getFetchDuration() {
+        return fetchDuration.snapshot();
+    }
+
+    @Override
+    public HistogramSnapshot getFetchSize() {
+        return fetchSize.snapshot();
+    }
+
+    @Override
+    public HistogramSnapshot getHandoffWait() {
+        return handoffWait.snapshot();
+    }
+
+    @Override
+    public HistogramSnapshot getProcessLatency() {
+        return processLatency.snapshot();
+    }
+
+    @Override
+    public long getQueueDepth() {
+        // read the "later" counter first, so that the gauge never goes negative
+        final long startedCount = started.sum();
+        return Math.max(0, submitted.sum() - startedCount);
+    }
+
+    @Override
+    public long getInFlight() {
+        final long completed = succeeded.sum() + failed.sum();
+        return Math.max(0, started.sum() - completed);
+    }
+
+    @Override
+    public long getSucceeded() {
+        return succeeded.sum();
+    }
+
+    @Override
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    @Override
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    @Override
+    public long getAdmitted() {
+        return admitted.sum();
+    }
+
+    @Override
+    public long getRetried() {
+        return retried.sum();
+    }
+
+    @Override
+    public long getDeadLettered() {
+        return deadLettered.sum();
+    }
+
+    @Override
+    public long getDeduplicated() {
+        return deduplicated.sum();
+    }
+}
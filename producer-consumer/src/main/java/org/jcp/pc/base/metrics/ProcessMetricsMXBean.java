@@ -0,0 +1,84 @@
+package org.jcp.pc.base.metrics;
+
+import org.jcp.metrics.HistogramSnapshot;
+
+/**
+ * JMX view of the {@link ProcessMetrics}. All the durations are reported in nanoseconds.
+ */
+public interface ProcessMetricsMXBean {
+
+    /**
+     * @return number of completed {@link org.jcp.pc.base.process.Producer#fetch()} calls
+     */
+    long getFetchCount();
+
+    /**
+     * @return total number of items returned by the fetch calls
+     */
+    long getFetchedItems();
+
+    /**
+     * @return duration distribution of the fetch calls
+     */
+    HistogramSnapshot getFetchDuration();
+
+    /**
+     * @return size distribution of the fetch results
+     */
+    HistogramSnapshot getFetchSize();
+
+    /**
+     * @return distribution of the time the items wait between the hand over and the processing start, or the admission
+     */
+    HistogramSnapshot getHandoffWait();
+
+    /**
+     * @return duration distribution of the {@link org.jcp.pc.base.process.WorkingConsumer#process(Object)} calls
+     */
+    HistogramSnapshot getProcessLatency();
+
+    /**
+     * @return number of items handed over to the consumer that are not being processed yet
+     */
+    long getQueueDepth();
+
+    /**
+     * @return number of items being processed at the moment
+     */
+    long getInFlight();
+
+    /**
+     * @return number of successfully processed items
+     */
+    long getSucceeded();
+
+    /**
+     * @return number of items which processing has thrown an exception
+     */
+    long getFailed();
+
+    /**
+     * @return number of items rejected by the consumer's executor
+     */
+    long getRejected();
+
+    /**
+     * @return number of items admitted by a consumer that processes them outside of these metrics, e.g. a pipeline
+     */
+    long getAdmitted();
+
+    /**
+     * @return number of failed processing attempts that have been scheduled for a retry
+     */
+    long getRetried();
+
+    /**
+     * @return number of items passed to the dead letter handler
+     */
+    long getDeadLettered();
+
+    /**
+     * @return number of fetched items dropped because they were still in flight
+     */
+    long getDeduplicated();
+}
@@ -0,0 +1,125 @@
+package org.jcp.pc.base.metrics;
+
+import org.jcp.metrics.HistogramSnapshot;
+
+/**
+ * An immutable copy of the {@link ProcessMetrics}
+ */
+public class ProcessMetricsSnapshot {
+
+    private final long              fetchCount;
+    private final long              fetchedItems;
+    private final HistogramSnapshot fetchDuration;
+    private final HistogramSnapshot fetchSize;
+    private final HistogramSnapshot handoffWait;
+    private final HistogramSnapshot processLatency;
+    private final long              queueDepth;
+    private final long              inFlight;
+    private final long              succeeded;
+    private final long              failed;
+    private final long              rejected;
+    private final long              admitted;
+    private final long              retried;
+    private final long              deadLettered;
+    private final long              deduplicated;
+
+    ProcessMetricsSnapshot(final long fetchCount,
+            final long fetchedItems,
+            final HistogramSnapshot fetchDuration,
+            final HistogramSnapshot fetchSize,
+            final HistogramSnapshot handoffWait,
+            final HistogramSnapshot processLatency,
+            final long queueDepth,
+            final long inFlight,
+            final long succeeded,
+            final long failed,
+            final long rejected,
+            final long admitted,
+            final long retried,
+            final long deadLettered,
+            final long deduplicated) {
+        this.fetchCount = fetchCount;
+        this.fetchedItems = fetchedItems;
+        this.fetchDuration = fetchDuration;
+        this.fetchSize = fetchSize;
+        this.handoffWait = handoffWait;
+        this.processLatency = processLatency;
+        this.queueDepth = queueDepth;
+        this.inFlight = inFlight;
+        this.succeeded = succeeded;
+        this.failed = failed;
+        this.rejected = rejected;
+        this.admitted = admitted;
+        this.retried = retried;
+        this.deadLettered = deadLettered;
+        this.deduplicated = deduplicated;
+    }
+
+    public long getFetchCount() {
+        return fetchCount;
+    }
+
+    public long getFetchedItems() {
+        return fetchedItems;
+    }
+
+    public HistogramSnapshot getFetchDuration() {
+        return fetchDuration;
+    }
+
+    public HistogramSnapshot getFetchSize() {
+        return fetchSize;
+    }
+
+    public HistogramSnapshot getHandoffWait() {
+        return handoffWait;
+    }
+
+    public HistogramSnapshot getProcessLatency() {
+        return processLatency;
+    }
+
+    public long getQueueDepth() {
+        return queueDepth;
+    }
+
+    public long getInFlight() {
+        return inFlight;
+    }
+
+    public long getSucceeded() {
+        return succeeded;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public long getAdmitted() {
+        return admitted;
+    }
+
+    public long getRetried() {
+        return retried;
+    }
+
+    public long getDeadLettered() {
+        return deadLettered;
+    }
+
+    public long getDeduplicated() {
+        return deduplicated;
+    }
+
+    public String toString() {
+        return "{\"fetchCount\":" + fetchCount + ", \"fetchedItems\":" + fetchedItems + ", \"fetchDuration\":" + fetchDuration
+                + ", \"handoffWait\":" + handoffWait + ", \"processLatency\":" + processLatency + ", \"queueDepth\":" + queueDepth
+                + ", \"inFlight\":" + inFlight + ", \"succeeded\":" + succeeded + ", \"failed\":" + failed
+                + ", \"rejected\":" + rejected + ", \"admitted\":" + admitted + ", \"retried\":" + retried + ", \"deadLettered\":" + deadLettered
+                + ", \"deduplicated\":" + deduplicated + "}";
+    }
+}
@@ -0,0 +1,18 @@
+package org.jcp.pc.base.process;
+
+/**
+ * Notified by the {@link WorkingConsumer} once it is done with an item handed over by the {@link Producer}, i.e. the
+ * item has been processed, passed to the dead letter handler or dropped.
+ *
+ * @param <T> the supported type
+ */
+@FunctionalInterface
+public interface CompletionListener<T> {
+
+    /**
+     * Called from the thread that has finished with the item, has to be fast and must not throw
+     *
+     * @param item the completed item
+     */
+    void completed(T item);
+}
@@ -0,0 +1,19 @@
+package org.jcp.pc.base.process;
+
+/**
+ * An {@link ItemConsumer} that reports when it is done with an item, required by a {@link Producer} that deduplicates
+ * the items in flight (see {@link Producer#isDeduplicating()}). The {@link WorkingConsumer} is one.
+ *
+ * @param <T> the supported type
+ */
+public interface CompletionReportingConsumer<T> extends ItemConsumer<T> {
+
+    /**
+     * Takes the item over and notifies the listener once it is done with the item, including the case when it is not
+     * accepted
+     *
+     * @param item     to be processed
+     * @param listener to be notified
+     */
+    void accept(T item, CompletionListener<? super T> listener);
+}
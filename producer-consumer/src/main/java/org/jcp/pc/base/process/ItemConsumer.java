@@ -0,0 +1,30 @@
+package org.jcp.pc.base.process;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * The receiving side of a {@link Producer}: takes over the fetched items and processes them. The default
+ * implementation is the {@link WorkingConsumer}, which processes the items in its own thread pool. The consumers that
+ * report the completion of the items implement {@link CompletionReportingConsumer}.
+ *
+ * @param <T> the supported type
+ */
+public interface ItemConsumer<T> extends Consumer<T> {
+
+    /**
+     * Re-schedules the items left unprocessed by the previous run, if the consumer keeps them. Called by the
+     * {@link Producer} before every fetch, has to do nothing once the items have been recovered.
+     *
+     * @param registration called for each recovered item right before it is scheduled
+     * @param listener     to be notified when a recovered item is completed
+     */
+    void recover(Consumer<? super T> registration, CompletionListener<? super T> listener);
+
+    /**
+     * Stops accepting the items and finishes the ones already taken over
+     *
+     * @return completes once the shutdown is complete
+     */
+    CompletableFuture<Void> shutdownAsync();
+}
@@ -1,19 +1,20 @@
 package org.jcp.pc.base.process;
 
 import java.util.Collection;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.locks.LockSupport;
 import java.util.function.Consumer;
 
+import org.jcp.pc.base.dedup.InFlightRegistry;
 import org.jcp.pc.base.exception.ProducerExceptionHandler;
+import org.jcp.pc.base.metrics.ProcessMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.jcp.pc.base.exception.UnexpectedCallException;
 
 /**
- * An abstract Producer. Pulls entities and feeds them to the provided {@link WorkingConsumer} in a sync manner.
+ * An abstract Producer. Pulls entities and feeds them to the provided {@link ItemConsumer} in a sync manner.
  *
  * @param <T> supported type
  * @see WorkingConsumer
@@ -24,6 +25,8 @@ public abstract class Producer<T> {
 
     private final State                    state;
     private final ProducerExceptionHandler producerExceptionHandler;
+    private final ProcessMetrics           metrics;
+    private final InFlightRegistry<T>      inFlightRegistry;
 
     /**
      * Default constructor with a basic exception handler (no handle, re-throw)
@@ -40,9 +43,38 @@ public abstract class Producer<T> {
      * @param producerExceptionHandler the exception handler
      */
     public Producer(final ProducerExceptionHandler producerExceptionHandler) {
+        this(producerExceptionHandler, new ProcessMetrics());
+    }
+
+    /**
+     * Creates a {@link Producer} with a unique {@link State}, specified {@link ProducerExceptionHandler} and
+     * {@link ProcessMetrics} the fetch calls are recorded to
+     *
+     * @param producerExceptionHandler the exception handler
+     * @param metrics                  the metrics, usually shared with the {@link WorkingConsumer}
+     */
+    public Producer(final ProducerExceptionHandler producerExceptionHandler,
+            final ProcessMetrics metrics) {
+        this(producerExceptionHandler, metrics, null);
+    }
+
+    /**
+     * Creates a {@link Producer} that drops the fetched items which are still in flight, i.e. returned by one of the
+     * previous fetch calls and not completed by the {@link WorkingConsumer} yet
+     *
+     * @param producerExceptionHandler the exception handler
+     * @param metrics                  the metrics, usually shared with the {@link WorkingConsumer}
+     * @param inFlightRegistry         keeps track of the items in flight, {@code null} disables the deduplication
+     */
+    public Producer(final ProducerExceptionHandler producerExceptionHandler,
+            final ProcessMetrics metrics,
+            final InFlightRegistry<T> inFlightRegistry) {
         assert producerExceptionHandler != null;
+        assert metrics != null;
         this.state = new State();
         this.producerExceptionHandler = producerExceptionHandler;
+        this.metrics = metrics;
+        this.inFlightRegistry = inFlightRegistry;
     }
 
     /**
@@ -54,17 +86,31 @@ public abstract class Producer<T> {
 
     /**
      * @param consumer the corresponding {@link Consumer} entity
+     * @throws IllegalArgumentException if the producer deduplicates the items and the consumer does not report their
+     *                                  completion
      */
-    public void acquireTasks(final WorkingConsumer<T> consumer) {
+    public void acquireTasks(final ItemConsumer<T> consumer) {
+        if (inFlightRegistry != null && !(consumer instanceof CompletionReportingConsumer)) {
+            throw new IllegalArgumentException("The deduplicating producer requires a CompletionReportingConsumer");
+        }
         if (state.inProgress.compareAndSet(false, true)) {
             try {
+                if (state.shutdown.get()) {
+                    LOG.info("Shutdown has been requested, skipping the fetch");
+                    return;
+                }
+
+                recover(consumer);
+
+                final long fetchStart = System.nanoTime();
                 final Collection<T> fetchResults = fetch();
+                metrics.fetchCompleted(fetchStart, fetchResults == null ? 0 : fetchResults.size());
                 if (fetchResults == null || fetchResults.isEmpty()) {
-                    LOG.info("No entities found for processing");
+                    LOG.debug("No entities found for processing");
                     return;
                 }
 
-                LOG.info("Found {} items for processing", fetchResults.size());
+                LOG.debug("Found {} items for processing", fetchResults.size());
 
                 for (final T result : fetchResults) {
                     if (state.shutdown.get()) {
@@ -72,7 +118,16 @@ public abstract class Producer<T> {
                         return;
                     }
 
-                    consumer.accept(result);
+                    try {
+                        handOver(consumer, result);
+                    } catch (final RuntimeException e) {
+                        if (!state.shutdown.get()) {
+                            throw e;
+                        }
+                        // the consumer is being shut down concurrently and does not accept the items anymore
+                        LOG.info("Consumer has stopped accepting items, finishing the process loop");
+                        return;
+                    }
                 }
 
             } catch (final RuntimeException e) {
@@ -80,6 +135,9 @@ public abstract class Producer<T> {
                 producerExceptionHandler.handle(e);
             } finally {
                 state.inProgress.set(false);
+                if (state.shutdown.get()) {
+                    state.terminated.complete(null);
+                }
             }
         } else {
             // someone tries to call this method concurrently
@@ -87,17 +145,53 @@ public abstract class Producer<T> {
         }
     }
 
+    private void handOver(final ItemConsumer<T> consumer, final T result) {
+        if (inFlightRegistry == null) {
+            consumer.accept(result);
+        } else if (inFlightRegistry.register(result)) {
+            ((CompletionReportingConsumer<T>) consumer).accept(result, inFlightRegistry);
+        } else {
+            metrics.itemDeduplicated();
+        }
+    }
+
+    /**
+     * Lets the consumer replay the journaled items before the first fetch. The recovered items are registered as in
+     * flight, so that they are not handed over once again by the fetch.
+     *
+     * @param consumer the corresponding {@link Consumer} entity
+     */
+    private void recover(final ItemConsumer<T> consumer) {
+        if (inFlightRegistry == null) {
+            consumer.recover(item -> {
+            }, item -> {
+            });
+        } else {
+            consumer.recover(inFlightRegistry::register, inFlightRegistry);
+        }
+    }
+
     /**
      * Informs the producer that the shutdown is requested and and waits until current fetch result is processed
      */
     public void requestShutdown() {
+        shutdownAsync().join();
+    }
+
+    /**
+     * Informs the producer that the shutdown is requested. The current fetch result processing loop is broken with the
+     * next item, no new fetches are started.
+     *
+     * @return completes as soon as the processing loop has finished, or right away if the producer is idle
+     */
+    public CompletableFuture<Void> shutdownAsync() {
         LOG.info("Requesting shutdown...");
         state.shutdown.set(true);
-        while (state.inProgress.get()) {
-            LOG.info("Waiting until all tasks are finished...");
-            LockSupport.parkNanos(TimeUnit.SECONDS.toNanos(1));
+        // either this check or the processing loop completion observes the both flags set
+        if (!state.inProgress.get()) {
+            state.terminated.complete(null);
         }
-        LOG.info("Producer shutdown complete");
+        return state.terminated.thenRun(() -> LOG.info("Producer shutdown complete"));
     }
 
     /**
@@ -109,6 +203,21 @@ public abstract class Producer<T> {
         return state.inProgress.get() && !state.shutdown.get();
     }
 
+    /**
+     * @return whether the fetched items still in flight are dropped, which requires a
+     * {@link CompletionReportingConsumer}
+     */
+    public boolean isDeduplicating() {
+        return inFlightRegistry != null;
+    }
+
+    /**
+     * @return the metrics the fetch calls are recorded to
+     */
+    public ProcessMetrics getMetrics() {
+        return metrics;
+    }
+
     /**
      * An aggregate object, that incapsulates the execution state flags of the {@link Producer}
      */
@@ -121,6 +230,10 @@ public abstract class Producer<T> {
          * The shutdown flag. When set, the processing loop has to be broken
          */
         private final AtomicBoolean shutdown;
+        /**
+         * Completed once the shutdown has been requested and the processing loop is not running
+         */
+        private final CompletableFuture<Void> terminated;
 
         /**
          * Create a state object that is unique for this {@link Producer}
@@ -128,6 +241,7 @@ public abstract class Producer<T> {
         private State() {
             this.inProgress = new AtomicBoolean(false);
             this.shutdown = new AtomicBoolean(false);
+            this.terminated = new CompletableFuture<>();
         }
 
         public boolean isShuttingDown() {
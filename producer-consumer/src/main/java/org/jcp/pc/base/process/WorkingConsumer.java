@@ -1,23 +1,84 @@
 package org.jcp.pc.base.process;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 
+import org.jcp.pc.base.journal.Journal;
+import org.jcp.pc.base.metrics.ProcessMetrics;
+import org.jcp.pc.base.retry.DeadLetterHandler;
+import org.jcp.pc.base.retry.HashedTimerWheel;
+import org.jcp.pc.base.retry.RetryPolicy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Abstract Consumer that after receiving a fetch result from the {@link Producer} schedule processing of this result
+ * Abstract Consumer that after receiving a fetch result from the {@link Producer} schedule processing of this result.
+ * Failed items are retried according to the {@link RetryPolicy}: the retries wait on a {@link HashedTimerWheel}, so
+ * no worker thread is blocked in between, and the items that run out of attempts are passed to the
+ * {@link DeadLetterHandler}.
+ * <p>
+ * With a {@link Journal} configured every accepted item is appended to the journal and acknowledged once completed.
+ * The items that are still queued or waiting for a retry when the consumer is shut down stay in the journal and are
+ * replayed by {@link #recover(Consumer, CompletionListener)} before the next fetch.
  *
  * @param <T> the supported type
  */
-public abstract class WorkingConsumer<T> implements Consumer<T> {
+public abstract class WorkingConsumer<T> implements CompletionReportingConsumer<T> {
 
     private static final Logger LOG = LoggerFactory.getLogger(WorkingConsumer.class);
 
+    /**
+     * Enforces the shutdown timeouts and runs the final shutdown steps of all the consumers, its thread only exists
+     * while a shutdown is in progress
+     */
+    private static final ScheduledThreadPoolExecutor SHUTDOWN_TIMER = shutdownTimer();
+
     private final ExecutorService executorService;
     private final int             timeout;
+    private final ProcessMetrics  metrics;
+
+    private final RetryPolicy          retryPolicy;
+    private final DeadLetterHandler<T> deadLetterHandler;
+    private final HashedTimerWheel     retryTimer;
+    private final Journal<T>           journal;
+    private final AtomicBoolean        recovered;
+
+    /**
+     * Number of the accepted items that are not completed yet, including the ones waiting for a retry
+     */
+    private final AtomicLong outstanding;
+
+    /**
+     * Completed by the last outstanding item once the shutdown has been requested
+     */
+    private final CompletableFuture<Void> drained;
+
+    /**
+     * Completed once the shutdown is complete
+     */
+    private final CompletableFuture<Void> terminated;
+
+    /**
+     * Set when the shutdown has been requested, no new items are accepted from then on
+     */
+    private volatile boolean shuttingDown;
+
+    /**
+     * Set when the processing is being interrupted, the failures from then on are caused by the shutdown
+     */
+    private volatile boolean terminating;
+
+    private static final CompletionListener<Object> NO_LISTENER = item -> {
+    };
 
     /**
      * Creates an instance of the {@link WorkingConsumer} with the specified params.
@@ -27,8 +88,69 @@ public abstract class WorkingConsumer<T> implements Consumer<T> {
      */
     public WorkingConsumer(final ExecutorService executorService,
             final int timeout) {
+        this(executorService, timeout, new ProcessMetrics());
+    }
+
+    /**
+     * Creates an instance of the {@link WorkingConsumer} with the specified params.
+     *
+     * @param executorService service to push the processing
+     * @param timeout         shutdown timeout in seconds after which the processing is forcibly interrupted
+     * @param metrics         the metrics the processing is recorded to, usually shared with the {@link Producer}
+     */
+    public WorkingConsumer(final ExecutorService executorService,
+            final int timeout,
+            final ProcessMetrics metrics) {
+        this(executorService, timeout, metrics, RetryPolicy.noRetry(), WorkingConsumer::logDeadLetter);
+    }
+
+    /**
+     * Creates an instance of the {@link WorkingConsumer} with the specified params.
+     *
+     * @param executorService   service to push the processing
+     * @param timeout           shutdown timeout in seconds after which the processing is forcibly interrupted
+     * @param metrics           the metrics the processing is recorded to, usually shared with the {@link Producer}
+     * @param retryPolicy       defines the retries of the failed items
+     * @param deadLetterHandler receives the items that could not be processed
+     */
+    public WorkingConsumer(final ExecutorService executorService,
+            final int timeout,
+            final ProcessMetrics metrics,
+            final RetryPolicy retryPolicy,
+            final DeadLetterHandler<T> deadLetterHandler) {
+        this(executorService, timeout, metrics, retryPolicy, deadLetterHandler, null);
+    }
+
+    /**
+     * Creates an instance of the {@link WorkingConsumer} with the specified params.
+     *
+     * @param executorService   service to push the processing
+     * @param timeout           shutdown timeout in seconds after which the processing is forcibly interrupted
+     * @param metrics           the metrics the processing is recorded to, usually shared with the {@link Producer}
+     * @param retryPolicy       defines the retries of the failed items
+     * @param deadLetterHandler receives the items that could not be processed
+     * @param journal           keeps the accepted items until they are completed, {@code null} disables the journaling
+     */
+    public WorkingConsumer(final ExecutorService executorService,
+            final int timeout,
+            final ProcessMetrics metrics,
+            final RetryPolicy retryPolicy,
+            final DeadLetterHandler<T> deadLetterHandler,
+            final Journal<T> journal) {
+        assert metrics != null;
+        assert retryPolicy != null;
+        assert deadLetterHandler != null;
         this.executorService = executorService;
         this.timeout = timeout;
+        this.metrics = metrics;
+        this.retryPolicy = retryPolicy;
+        this.deadLetterHandler = deadLetterHandler;
+        this.retryTimer = retryPolicy.canRetry(1) ? new HashedTimerWheel() : null;
+        this.journal = journal;
+        this.recovered = new AtomicBoolean(journal == null);
+        this.outstanding = new AtomicLong();
+        this.drained = new CompletableFuture<>();
+        this.terminated = new CompletableFuture<>();
     }
 
     /**
@@ -45,24 +167,424 @@ public abstract class WorkingConsumer<T> implements Consumer<T> {
      */
     @Override
     public void accept(final T result) {
-        executorService.submit(() -> process(result));
+        admit(result);
+        try {
+            submit(result, 0, NO_LISTENER, journal(result));
+        } catch (final RuntimeException e) {
+            finished();
+            throw e;
+        }
     }
 
     /**
-     * Executes the shutdown
+     * Schedules the item for processing and notifies the listener when the item is completed, including the case when
+     * it is not accepted
+     *
+     * @param result   to be processed
+     * @param listener to be notified
      */
-    public void requestShutdown() {
-        LOG.info("WorkingConsumer shutdown requested");
+    @Override
+    public void accept(final T result, final CompletionListener<? super T> listener) {
         try {
-            executorService.shutdown();
-            if (!executorService.awaitTermination(timeout, TimeUnit.SECONDS)) {
-                // shutdown failed
-                throw new InterruptedException("Failed to process remaining tasks. Shutdown failed.");
+            admit(result);
+        } catch (final RuntimeException e) {
+            listener.completed(result);
+            throw e;
+        }
+        try {
+            submit(result, 0, listener, journal(result));
+        } catch (final RuntimeException e) {
+            finished();
+            listener.completed(result);
+            throw e;
+        }
+    }
+
+    /**
+     * Counts the item as outstanding
+     *
+     * @throws RejectedExecutionException if the shutdown has been requested
+     */
+    private void admit(final T result) {
+        // counted before the flag is read, either the item is rejected or the shutdown waits for it
+        outstanding.incrementAndGet();
+        if (shuttingDown) {
+            finished();
+            // counted as a submission first, the rejection takes it back
+            metrics.itemSubmitted();
+            metrics.itemRejected();
+            throw new RejectedExecutionException("The consumer is shutting down, rejected " + result);
+        }
+    }
+
+    /**
+     * Called once an outstanding item has been completed or abandoned, signals the draining shutdown
+     */
+    private void finished() {
+        if (outstanding.decrementAndGet() == 0 && shuttingDown) {
+            drained.complete(null);
+        }
+    }
+
+    /**
+     * Re-schedules the items the {@link Journal} has recovered, does nothing if called repeatedly or if there is no
+     * journal configured. Intended to be called before the first fetch. Recovered items that cannot be scheduled stay in
+     * the journal.
+     *
+     * @param registration called for each recovered item right before it is scheduled
+     * @param listener     to be notified when a recovered item is completed
+     */
+    @Override
+    public void recover(final Consumer<? super T> registration, final CompletionListener<? super T> listener) {
+        if (!recovered.compareAndSet(false, true)) {
+            return;
+        }
+        final List<Journal.Entry<T>> entries = journal.recover();
+        for (final Journal.Entry<T> entry : entries) {
+            registration.accept(entry.getItem());
+            outstanding.incrementAndGet();
+            try {
+                submit(entry.getItem(), 0, listener, entry.getId());
+            } catch (final RuntimeException e) {
+                finished();
+                throw e;
             }
+        }
+        if (!entries.isEmpty()) {
+            LOG.info("Re-scheduled {} items recovered from the journal", entries.size());
+        }
+    }
+
+    /**
+     * @return the journal record id of the item, or {@code -1} if there is no journal
+     */
+    private long journal(final T result) {
+        return journal == null ? -1 : journal.append(result);
+    }
+
+    /**
+     * Schedules a processing attempt
+     *
+     * @param result         the item to be processed
+     * @param failedAttempts number of the attempts that have already failed
+     * @param listener       to be notified on the item completion
+     * @param journalId      the journal record id of the item, {@code -1} if there is no journal
+     */
+    private void submit(final T result,
+            final int failedAttempts,
+            final CompletionListener<? super T> listener,
+            final long journalId) {
+        final long submittedAt = metrics.itemSubmitted();
+        try {
+            executorService.execute(new ProcessingTask(result, failedAttempts, submittedAt, listener, journalId));
+        } catch (final RejectedExecutionException e) {
+            metrics.itemRejected();
+            throw e;
+        }
+    }
+
+    private void onFailure(final T result,
+            final int failedAttempts,
+            final RuntimeException cause,
+            final CompletionListener<? super T> listener,
+            final long journalId) {
+        if (terminating) {
+            abandon(result, failedAttempts, cause, listener, journalId);
+            return;
+        }
+        if (retryPolicy.canRetry(failedAttempts)
+                && retryTimer.schedule(new RetryTask(result, failedAttempts, cause, listener, journalId),
+                retryPolicy.delayNanos(failedAttempts), TimeUnit.NANOSECONDS)) {
+            metrics.itemRetried();
+            return;
+        }
+        deadLetter(result, cause, failedAttempts, listener, journalId);
+    }
+
+    private void deadLetter(final T result,
+            final Throwable cause,
+            final int attempts,
+            final CompletionListener<? super T> listener,
+            final long journalId) {
+        metrics.itemDeadLettered();
+        try {
+            deadLetterHandler.handle(result, cause, attempts);
+        } catch (final RuntimeException e) {
+            LOG.error("Dead letter handler has failed for {}", result, e);
+        } finally {
+            complete(result, listener, journalId);
+        }
+    }
+
+    /**
+     * Called once the consumer is done with the item
+     */
+    private void complete(final T result, final CompletionListener<? super T> listener, final long journalId) {
+        try {
+            if (journalId >= 0) {
+                journal.acknowledge(journalId);
+            }
+            listener.completed(result);
+        } finally {
+            finished();
+        }
+    }
+
+    /**
+     * Called for the items that are left unprocessed due to the shutdown. The journaled items are kept for the replay,
+     * the other ones are passed to the {@link DeadLetterHandler}.
+     */
+    private void abandon(final T result,
+            final int failedAttempts,
+            final Throwable cause,
+            final CompletionListener<? super T> listener,
+            final long journalId) {
+        if (journalId >= 0) {
+            try {
+                listener.completed(result);
+            } finally {
+                finished();
+            }
+        } else {
+            deadLetter(result, cause, failedAttempts, listener, journalId);
+        }
+    }
+
+    /**
+     * Executes the shutdown and waits for its completion, see {@link #shutdownAsync()}. If the waiting thread is
+     * interrupted, the processing is interrupted right away.
+     */
+    public void requestShutdown() {
+        final CompletableFuture<Void> termination = shutdownAsync();
+        try {
+            termination.get();
         } catch (final InterruptedException e) {
+            SHUTDOWN_TIMER.execute(this::expire);
+            termination.join();
             Thread.currentThread().interrupt();
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Requests the shutdown and returns right away. No new items are accepted, the accepted ones are processed
+     * including their retries: the last completed item signals the drain, then the executor is shut down. If the items
+     * are not completed within the timeout, the processing is interrupted and the items that have not been started, or
+     * are still waiting for a retry, are abandoned: kept in the {@link Journal} for the replay if there is one, passed to
+     * the {@link DeadLetterHandler} otherwise.
+     *
+     * @return completes once the shutdown is complete
+     */
+    @Override
+    public CompletableFuture<Void> shutdownAsync() {
+        synchronized (terminated) {
+            if (!shuttingDown) {
+                LOG.info("WorkingConsumer shutdown requested");
+                shuttingDown = true;
+                final ScheduledFuture<?> expiry = SHUTDOWN_TIMER.schedule(this::expire, timeout, TimeUnit.SECONDS);
+                // the final steps run on the timer, the last item may complete in a worker or in the retry timer
+                drained.thenRunAsync(() -> {
+                    expiry.cancel(false);
+                    terminate();
+                }, SHUTDOWN_TIMER);
+                if (outstanding.get() == 0) {
+                    drained.complete(null);
+                }
+            }
+        }
+        return terminated;
+    }
+
+    /**
+     * Called on the timer when the shutdown timeout is reached
+     */
+    private void expire() {
+        if (!terminated.isDone()) {
+            LOG.warn("Failed to process remaining tasks within {} seconds, interrupting the processing", timeout);
+            dropQueued();
+            terminate();
+        }
+    }
+
+    /**
+     * The final shutdown step, always called on the timer, so it is never executed concurrently
+     */
+    private void terminate() {
+        if (terminated.isDone()) {
+            return;
+        }
+        try {
+            executorService.shutdown();
+            stopRetries();
+            closeJournal();
+            LOG.info("WorkingConsumer shutdown complete");
+            terminated.complete(null);
+        } catch (final RuntimeException e) {
+            terminated.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Executes the shutdown without draining: the processing is interrupted right away and the queued items are
+     * abandoned. Intended to be used with a {@link Journal}, which makes the items replayed on the next start.
+     */
+    public void requestShutdownNow() {
+        LOG.info("WorkingConsumer immediate shutdown requested");
+        shuttingDown = true;
+        try {
+            dropQueued();
+        } finally {
+            stopRetries();
+            closeJournal();
         }
         LOG.info("WorkingConsumer shutdown complete");
+        terminated.complete(null);
+    }
+
+    private void closeJournal() {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    /**
+     * Forcibly stops the executor
+     */
+    @SuppressWarnings("unchecked")
+    private void dropQueued() {
+        terminating = true;
+        for (final Runnable task : executorService.shutdownNow()) {
+            if (task instanceof WorkingConsumer.ProcessingTask) {
+                final ProcessingTask dropped = (ProcessingTask) task;
+                metrics.itemRejected();
+                abandon(dropped.result, dropped.failedAttempts, null, dropped.listener, dropped.journalId);
+            }
+        }
+    }
+
+    /**
+     * Stops the retry timer, the items still waiting for a retry are abandoned
+     */
+    @SuppressWarnings("unchecked")
+    private void stopRetries() {
+        if (retryTimer == null) {
+            return;
+        }
+        for (final Runnable task : retryTimer.stop()) {
+            final RetryTask retry = (RetryTask) task;
+            abandon(retry.result, retry.failedAttempts, retry.cause, retry.listener, retry.journalId);
+        }
+    }
+
+    private static ScheduledThreadPoolExecutor shutdownTimer() {
+        final ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, task -> {
+            final Thread thread = new Thread(task, "working-consumer-shutdown");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.setRemoveOnCancelPolicy(true);
+        timer.setKeepAliveTime(1, TimeUnit.SECONDS);
+        timer.allowCoreThreadTimeOut(true);
+        return timer;
+    }
+
+    /**
+     * The default {@link DeadLetterHandler}, only logs the item
+     */
+    private static void logDeadLetter(final Object item, final Throwable cause, final int attempts) {
+        if (cause == null) {
+            LOG.warn("Item {} has not been processed due to the shutdown", item);
+        } else {
+            LOG.error("Failed to process {} after {} attempt(s)", item, attempts, cause);
+        }
+    }
+
+    /**
+     * @return the metrics the processing is recorded to
+     */
+    public ProcessMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * A single processing attempt of an item
+     */
+    private class ProcessingTask implements Runnable {
+        private final T                             result;
+        private final int                           failedAttempts;
+        private final long                          submittedAt;
+        private final CompletionListener<? super T> listener;
+        private final long                          journalId;
+
+        private ProcessingTask(final T result,
+                final int failedAttempts,
+                final long submittedAt,
+                final CompletionListener<? super T> listener,
+                final long journalId) {
+            this.result = result;
+            this.failedAttempts = failedAttempts;
+            this.submittedAt = submittedAt;
+            this.listener = listener;
+            this.journalId = journalId;
+        }
+
+        /**
+         * Runs the processing attempt and reschedules the item if the attempt fails. A failure of the completion
+         * (the journal acknowledgement or the listener) is only logged, the item has been processed already.
+         */
+        @Override
+        public void run() {
+            final long startedAt = metrics.processingStarted(submittedAt);
+            try {
+                process(result);
+            } catch (final RuntimeException e) {
+                metrics.processingCompleted(startedAt, false);
+                onFailure(result, failedAttempts + 1, e, listener, journalId);
+                return;
+            }
+            metrics.processingCompleted(startedAt, true);
+            try {
+                complete(result, listener, journalId);
+            } catch (final RuntimeException e) {
+                LOG.error("Failed to complete the processed item {}", result, e);
+            }
+        }
+    }
+
+    /**
+     * An item waiting for the retry on the timer wheel. Running the task only re-submits the item to the executor.
+     */
+    private class RetryTask implements Runnable {
+        private final T                             result;
+        private final int                           failedAttempts;
+        private final RuntimeException              cause;
+        private final CompletionListener<? super T> listener;
+        private final long                          journalId;
+
+        private RetryTask(final T result,
+                final int failedAttempts,
+                final RuntimeException cause,
+                final CompletionListener<? super T> listener,
+                final long journalId) {
+            this.result = result;
+            this.failedAttempts = failedAttempts;
+            this.cause = cause;
+            this.listener = listener;
+            this.journalId = journalId;
+        }
+
+        @Override
+        public void run() {
+            try {
+                submit(result, failedAttempts, listener, journalId);
+            } catch (final RejectedExecutionException e) {
+                abandon(result, failedAttempts, cause, listener, journalId);
+            }
+        }
     }
 
 }
@@ -0,0 +1,19 @@
+package org.jcp.pc.base.retry;
+
+/**
+ * Receives the items which processing has failed and may not be retried anymore
+ *
+ * @param <T> the supported type
+ */
+@FunctionalInterface
+public interface DeadLetterHandler<T> {
+
+    /**
+     * The implementation takes the ownership of the item, e.g. persists it for a manual investigation
+     *
+     * @param item     the item that could not be processed
+     * @param cause    the last processing exception, or {@code null} if the item was dropped because of a shutdown
+     * @param attempts number of the processing attempts made
+     */
+    void handle(T item, Throwable cause, int attempts);
+}
@@ -0,0 +1,218 @@
+package org.jcp.pc.base.retry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A hashed timer wheel (Varghese & Lauck). The scheduled tasks are hashed into a fixed number of buckets by their
+ * deadline tick, a single ticker thread advances over the buckets and runs the expired tasks. Scheduling is a lock-free
+ * enqueue, waiting tasks hold no threads, and the precision is limited to the tick duration.
+ * <p>
+ * The expired tasks are executed by the ticker thread, so they are expected to be short, e.g. re-submit an item to an
+ * executor.
+ */
+public class HashedTimerWheel {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HashedTimerWheel.class);
+
+    private static final int STATE_INIT    = 0;
+    private static final int STATE_STARTED = 1;
+    private static final int STATE_STOPPED = 2;
+
+    private final long             tickNanos;
+    private final Timeout[]        wheel;
+    private final int              mask;
+    private final Queue<Timeout>   registrations;
+    private final AtomicInteger    state;
+    private final AtomicInteger    pending;
+    private final long             startTime;
+    private final Thread           worker;
+
+    /**
+     * Creates a wheel with 10 ms ticks and 512 buckets, i.e. a single wheel round takes ~5 seconds
+     */
+    public HashedTimerWheel() {
+        this(10, TimeUnit.MILLISECONDS, 512);
+    }
+
+    /**
+     * Creates a new timer wheel, the ticker thread is started lazily with the first scheduled task
+     *
+     * @param tickDuration duration of a single tick
+     * @param unit         unit of the tick duration
+     * @param wheelSize    number of buckets, rounded up to the next power of two
+     */
+    public HashedTimerWheel(final long tickDuration, final TimeUnit unit, final int wheelSize) {
+        if (tickDuration <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("Tick duration and wheel size must be positive");
+        }
+        this.tickNanos = unit.toNanos(tickDuration);
+        final int size = Integer.highestOneBit(wheelSize - 1 > 0 ? (wheelSize - 1) << 1 : 1);
+        this.wheel = new Timeout[size];
+        this.mask = size - 1;
+        this.registrations = new ConcurrentLinkedQueue<>();
+        this.state = new AtomicInteger(STATE_INIT);
+        this.pending = new AtomicInteger(0);
+        this.startTime = System.nanoTime();
+        this.worker = new Thread(this::tickLoop, "timer-wheel-" + System.identityHashCode(this));
+        this.worker.setDaemon(true);
+    }
+
+    /**
+     * Schedules a one-shot task
+     *
+     * @param task  the task to be executed by the ticker thread
+     * @param delay delay after which the task is executed
+     * @param unit  unit of the delay
+     * @return {@code false} if the wheel has been stopped and the task will never be executed
+     */
+    public boolean schedule(final Runnable task, final long delay, final TimeUnit unit) {
+        assert task != null;
+        if (state.get() == STATE_INIT && state.compareAndSet(STATE_INIT, STATE_STARTED)) {
+            worker.start();
+        }
+        if (state.get() == STATE_STOPPED) {
+            return false;
+        }
+
+        final Timeout timeout = new Timeout(task, System.nanoTime() - startTime + unit.toNanos(Math.max(0, delay)));
+        pending.incrementAndGet();
+        registrations.add(timeout);
+
+        // a concurrent stop() could have already collected the registrations, take it back if it has not
+        if (state.get() == STATE_STOPPED && registrations.remove(timeout)) {
+            pending.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Stops the ticker thread
+     *
+     * @return the tasks that have been scheduled but not executed
+     */
+    public List<Runnable> stop() {
+        if (Thread.currentThread() == worker) {
+            throw new IllegalStateException("The timer wheel cannot be stopped from a scheduled task");
+        }
+
+        final int previous = state.getAndSet(STATE_STOPPED);
+        if (previous == STATE_STARTED) {
+            LockSupport.unpark(worker);
+            boolean interrupted = false;
+            while (worker.isAlive()) {
+                try {
+                    worker.join();
+                } catch (final InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        final List<Runnable> unprocessed = new ArrayList<>();
+        for (int i = 0; i < wheel.length; i++) {
+            for (Timeout timeout = wheel[i]; timeout != null; timeout = timeout.next) {
+                unprocessed.add(timeout.task);
+            }
+            wheel[i] = null;
+        }
+        Timeout timeout;
+        while ((timeout = registrations.poll()) != null) {
+            unprocessed.add(timeout.task);
+        }
+        pending.addAndGet(-unprocessed.size());
+        return unprocessed;
+    }
+
+    /**
+     * @return number of the scheduled tasks that have not been executed yet
+     */
+    public int getPending() {
+        return pending.get();
+    }
+
+    /**
+     * The ticker thread body, the only place the buckets are touched while the wheel is running
+     */
+    private void tickLoop() {
+        long tick = (System.nanoTime() - startTime) / tickNanos;
+        while (state.get() == STATE_STARTED) {
+            final long tickDeadline = tickNanos * (tick + 1);
+            final long sleep = tickDeadline - (System.nanoTime() - startTime);
+            if (sleep > 0) {
+                LockSupport.parkNanos(this, sleep);
+                continue;
+            }
+            transferRegistrations(tick);
+            expire(tick & mask);
+            tick++;
+        }
+    }
+
+    private void transferRegistrations(final long currentTick) {
+        Timeout timeout;
+        while ((timeout = registrations.poll()) != null) {
+            final long deadlineTick = timeout.deadline / tickNanos;
+            timeout.remainingRounds = (deadlineTick - currentTick) / wheel.length;
+            final int index = (int) (Math.max(deadlineTick, currentTick) & mask);
+            timeout.next = wheel[index];
+            wheel[index] = timeout;
+        }
+    }
+
+    private void expire(final long index) {
+        final int bucket = (int) index;
+        Timeout previous = null;
+        Timeout timeout = wheel[bucket];
+        while (timeout != null) {
+            final Timeout next = timeout.next;
+            if (timeout.remainingRounds <= 0) {
+                if (previous == null) {
+                    wheel[bucket] = next;
+                } else {
+                    previous.next = next;
+                }
+                pending.decrementAndGet();
+                try {
+                    timeout.task.run();
+                } catch (final RuntimeException e) {
+                    LOG.error("Scheduled task has thrown an exception", e);
+                }
+            } else {
+                timeout.remainingRounds--;
+                previous = timeout;
+            }
+            timeout = next;
+        }
+    }
+
+    /**
+     * A scheduled task, linked into a bucket list
+     */
+    private static class Timeout {
+        private final Runnable task;
+        /**
+         * Deadline in nanos relative to the wheel start time
+         */
+        private final long     deadline;
+        private long           remainingRounds;
+        private Timeout        next;
+
+        private Timeout(final Runnable task, final long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package org.jcp.pc.base.retry;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Describes how the failed items are retried: the maximum number of processing attempts and an exponential backoff
+ * between them.
+ */
+public class RetryPolicy {
+
+    private static final RetryPolicy NO_RETRY = new RetryPolicy(1, 0, 1.0, 0, TimeUnit.MILLISECONDS);
+
+    private final int    maxAttempts;
+    private final long   initialDelayNanos;
+    private final double multiplier;
+    private final long   maxDelayNanos;
+
+    /**
+     * Creates a retry policy
+     *
+     * @param maxAttempts  maximum number of processing attempts, including the first one
+     * @param initialDelay delay before the first retry
+     * @param multiplier   factor the delay grows with after each failed retry
+     * @param maxDelay     upper bound of the delay
+     * @param unit         unit of the delays
+     */
+    public RetryPolicy(final int maxAttempts,
+            final long initialDelay,
+            final double multiplier,
+            final long maxDelay,
+            final TimeUnit unit) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("At least one attempt is required");
+        }
+        if (initialDelay < 0 || maxDelay < initialDelay || multiplier < 1.0) {
+            throw new IllegalArgumentException("Invalid backoff configuration");
+        }
+        this.maxAttempts = maxAttempts;
+        this.initialDelayNanos = unit.toNanos(initialDelay);
+        this.multiplier = multiplier;
+        this.maxDelayNanos = unit.toNanos(maxDelay);
+    }
+
+    /**
+     * @return a policy that hands the failed items over to the dead letter handler right away
+     */
+    public static RetryPolicy noRetry() {
+        return NO_RETRY;
+    }
+
+    /**
+     * @param failedAttempts number of attempts that have failed so far
+     * @return whether one more attempt is allowed
+     */
+    public boolean canRetry(final int failedAttempts) {
+        return failedAttempts < maxAttempts;
+    }
+
+    /**
+     * Calculates the backoff delay
+     *
+     * @param failedAttempts number of attempts that have failed so far, starting with 1
+     * @return the delay before the next attempt, in nanoseconds
+     */
+    public long delayNanos(final int failedAttempts) {
+        final double delay = initialDelayNanos * Math.pow(multiplier, Math.max(0, failedAttempts - 1));
+        return delay >= maxDelayNanos ? maxDelayNanos : (long) delay;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+}
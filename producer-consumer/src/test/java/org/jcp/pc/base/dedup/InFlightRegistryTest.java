@@ -0,0 +1,87 @@
+package org.jcp.pc.base.dedup;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jcp.pc.base.metrics.ProcessMetrics;
+import org.jcp.pc.base.process.Producer;
+import org.jcp.pc.base.process.WorkingConsumer;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class InFlightRegistryTest {
+
+    @Test
+    public void testLongSet() {
+        final ConcurrentLongSet set = new ConcurrentLongSet(4);
+        final Set<Long> expected = new HashSet<>();
+        final Random random = new Random(42);
+
+        for (int i = 0; i < 100_000; i++) {
+            final long value = random.nextInt(5_000) - 100;
+            if (random.nextBoolean()) {
+                Assert.assertEquals(expected.add(value), set.add(value));
+            } else {
+                Assert.assertEquals(expected.remove(value), set.remove(value));
+            }
+        }
+
+        Assert.assertEquals(expected.size(), set.size());
+        for (long value = -100; value < 4_900; value++) {
+            Assert.assertEquals(expected.contains(value), set.contains(value));
+        }
+    }
+
+    @Test
+    public void testOverlappingFetches() throws Exception {
+        final ProcessMetrics metrics = new ProcessMetrics();
+        final InFlightRegistry<Long> registry = new InFlightRegistry<>(Long::longValue);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger processed = new AtomicInteger();
+
+        // every fetch returns the same ten "rows"
+        final Producer<Long> producer = new Producer<Long>(e -> {
+            throw e;
+        }, metrics, registry) {
+            @Override
+            public Collection<Long> fetch() {
+                final List<Long> rows = new ArrayList<>();
+                for (long i = 0; i < 10; i++) {
+                    rows.add(i);
+                }
+                return rows;
+            }
+        };
+        final WorkingConsumer<Long> consumer = new WorkingConsumer<Long>(Executors.newFixedThreadPool(4), 5, metrics) {
+            @Override
+            public void process(final Long result) {
+                try {
+                    release.await();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                processed.incrementAndGet();
+            }
+        };
+
+        producer.acquireTasks(consumer);
+        producer.acquireTasks(consumer);
+
+        Assert.assertEquals(10, registry.size());
+        Assert.assertEquals(10, metrics.getDeduplicated());
+
+        release.countDown();
+        consumer.requestShutdown();
+
+        Assert.assertEquals(10, processed.get());
+        Assert.assertEquals(0, registry.size());
+    }
+}
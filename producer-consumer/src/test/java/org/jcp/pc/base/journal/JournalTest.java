@@ -0,0 +1,161 @@
+package org.jcp.pc.base.journal;
+
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.jcp.pc.base.metrics.ProcessMetrics;
+import org.jcp.pc.base.process.Producer;
+import org.jcp.pc.base.process.WorkingConsumer;
+import org.jcp.pc.base.retry.RetryPolicy;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class JournalTest {
+
+    private static final ItemSerializer<String> SERIALIZER = new ItemSerializer<String>() {
+        @Override
+        public byte[] serialize(final String item) {
+            return item.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String deserialize(final byte[] bytes) {
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    };
+
+    private Path directory;
+
+    @Before
+    public void before() throws Exception {
+        directory = Files.createTempDirectory("journal");
+    }
+
+    @After
+    public void after() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (final Path file : files.collect(Collectors.toList())) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void testRecovery() throws Exception {
+        // small segments, so that the items are spread over a number of files
+        final Journal<String> journal = new Journal<>(directory, SERIALIZER, 256);
+        for (int i = 0; i < 100; i++) {
+            final long id = journal.append("item-" + i);
+            if (i % 10 != 0) {
+                journal.acknowledge(id);
+            }
+        }
+        Assert.assertEquals(10, journal.getPending());
+        journal.close();
+
+        final Journal<String> reopened = new Journal<>(directory, SERIALIZER, 256);
+        final List<Journal.Entry<String>> entries = reopened.recover();
+        Assert.assertEquals(10, entries.size());
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals("item-" + i * 10, entries.get(i).getItem());
+        }
+        Assert.assertTrue(reopened.recover().isEmpty());
+
+        entries.forEach(entry -> reopened.acknowledge(entry.getId()));
+        reopened.append("next");
+        Assert.assertEquals(1, reopened.getPending());
+        try (Stream<Path> files = Files.list(directory)) {
+            // only the segments written after the reopening are left
+            Assert.assertTrue(files.count() <= 2);
+        }
+        reopened.close();
+    }
+
+    @Test
+    public void testTornTailIsSkipped() throws Exception {
+        final Journal<String> journal = new Journal<>(directory, SERIALIZER, 4096);
+        for (int i = 0; i < 3; i++) {
+            journal.append("item-" + i);
+        }
+        journal.close();
+
+        final Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.findFirst().orElseThrow(IllegalStateException::new);
+        }
+        // every record takes a 17 bytes header and 6 bytes of payload
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            // the payload of the last item is corrupted
+            file.seek(2 * 23 + 17);
+            file.write('X');
+            // a record torn right after its type and a bogus length
+            file.seek(3 * 23);
+            file.write(1);
+            file.writeInt(Integer.MAX_VALUE);
+        }
+
+        final Journal<String> reopened = new Journal<>(directory, SERIALIZER, 4096);
+        final List<Journal.Entry<String>> entries = reopened.recover();
+        Assert.assertEquals(2, entries.size());
+        Assert.assertEquals("item-1", entries.get(1).getItem());
+
+        // the numbering continues after the last valid record, the id of the skipped record is given out again
+        Assert.assertEquals(2, reopened.append("next"));
+        reopened.close();
+    }
+
+    @Test
+    public void testReplayAfterShutdown() throws Exception {
+        final CountDownLatch never = new CountDownLatch(1);
+        final WorkingConsumer<String> stuck = consumer(new Journal<>(directory, SERIALIZER), item -> {
+            try {
+                never.await();
+            } catch (final InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        for (int i = 0; i < 5; i++) {
+            stuck.accept("item-" + i);
+        }
+        stuck.requestShutdownNow();
+
+        final Set<String> processed = ConcurrentHashMap.newKeySet();
+        final WorkingConsumer<String> restarted = consumer(new Journal<>(directory, SERIALIZER), processed::add);
+        final Producer<String> producer = new Producer<String>() {
+            @Override
+            public Collection<String> fetch() {
+                return Collections.emptyList();
+            }
+        };
+        producer.acquireTasks(restarted);
+        restarted.requestShutdown();
+
+        Assert.assertEquals(5, processed.size());
+        Assert.assertEquals(0, new Journal<>(directory, SERIALIZER).recover().size());
+    }
+
+    private static WorkingConsumer<String> consumer(final Journal<String> journal,
+            final java.util.function.Consumer<String> processing) {
+        return new WorkingConsumer<String>(Executors.newSingleThreadExecutor(), 5, new ProcessMetrics(),
+                RetryPolicy.noRetry(), (item, cause, attempts) -> Assert.fail("Unexpected dead letter " + item), journal) {
+            @Override
+            public void process(final String result) {
+                processing.accept(result);
+            }
+        };
+    }
+}
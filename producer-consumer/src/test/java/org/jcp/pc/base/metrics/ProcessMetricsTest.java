@@ -0,0 +1,50 @@
+package org.jcp.pc.base.metrics;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+
+import org.jcp.metrics.JmxSupport;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ProcessMetricsTest {
+
+    @Test
+    public void testRecording() {
+        final ProcessMetrics metrics = new ProcessMetrics();
+
+        metrics.fetchCompleted(System.nanoTime(), 2);
+        final long first = metrics.processingStarted(metrics.itemSubmitted());
+        metrics.itemSubmitted();
+
+        Assert.assertEquals(1, metrics.getQueueDepth());
+        Assert.assertEquals(1, metrics.getInFlight());
+
+        metrics.processingCompleted(first, false);
+
+        final ProcessMetricsSnapshot snapshot = metrics.snapshot();
+        Assert.assertEquals(1, snapshot.getFetchCount());
+        Assert.assertEquals(2, snapshot.getFetchedItems());
+        Assert.assertEquals(0, snapshot.getInFlight());
+        Assert.assertEquals(1, snapshot.getFailed());
+        Assert.assertEquals(1, snapshot.getProcessLatency().getCount());
+    }
+
+    @Test
+    public void testJmx() throws Exception {
+        final ProcessMetrics metrics = new ProcessMetrics();
+        metrics.processingCompleted(metrics.processingStarted(metrics.itemSubmitted()), true);
+
+        final ObjectName name = metrics.registerMBean("test");
+        try {
+            Assert.assertEquals(1L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Succeeded"));
+            final CompositeData latency = (CompositeData) ManagementFactory.getPlatformMBeanServer()
+                    .getAttribute(name, "ProcessLatency");
+            Assert.assertEquals(1L, latency.get("count"));
+        } finally {
+            JmxSupport.unregister(name);
+        }
+    }
+}
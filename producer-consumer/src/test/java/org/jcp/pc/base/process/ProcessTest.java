@@ -1,5 +1,9 @@
 package org.jcp.pc.base.process;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.LockSupport;
@@ -7,6 +11,8 @@ import java.util.concurrent.locks.LockSupport;
 import org.jcp.pc.base.components.DefaultProcessExecutor;
 import org.jcp.pc.base.components.TestEntityConsumer;
 import org.jcp.pc.base.components.TestEntityProducer;
+import org.jcp.pc.base.components.model.TestEntity;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -38,5 +44,58 @@ public class ProcessTest {
         defaultProcessExecutor.shutdown();
     }
 
+    @Test
+    public void testShutdownAsync() throws Exception {
+        final CountDownLatch fetching = new CountDownLatch(1);
+        final Producer<TestEntity> slowProducer = new Producer<TestEntity>() {
+            @Override
+            public Collection<TestEntity> fetch() {
+                fetching.countDown();
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(200));
+                return Collections.singletonList(new TestEntity(1, "late"));
+            }
+        };
+        final DefaultProcessExecutor executor = new DefaultProcessExecutor(slowProducer,
+                new TestEntityConsumer(Executors.newSingleThreadExecutor(), SHUTDOWN_TIMEOUT_SECONDS));
+
+        final Thread thread = new Thread(executor::run);
+        thread.start();
+        Assert.assertTrue(fetching.await(5, TimeUnit.SECONDS));
+
+        final long start = System.nanoTime();
+        final CompletableFuture<Void> shutdown = executor.shutdownAsync();
+        Assert.assertFalse(shutdown.isDone());
+        shutdown.get(5, TimeUnit.SECONDS);
+
+        // woken up right after the fetch has returned, not on the next polling interval
+        Assert.assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(900));
+        Assert.assertFalse(slowProducer.isRunning());
+        thread.join();
+    }
+
+    @Test
+    public void testConsumerShutdownAsync() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final WorkingConsumer<TestEntity> consumer = new WorkingConsumer<TestEntity>(Executors.newSingleThreadExecutor(),
+                SHUTDOWN_TIMEOUT_SECONDS) {
+            @Override
+            public void process(final TestEntity result) {
+                try {
+                    release.await();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        consumer.accept(new TestEntity(1, "blocked"));
 
-}
\ No newline at end of file
+        final CompletableFuture<Void> shutdown = consumer.shutdownAsync();
+        Assert.assertFalse(shutdown.isDone());
+
+        // completed by the last item, not by the timeout
+        release.countDown();
+        shutdown.get(1, TimeUnit.SECONDS);
+        Assert.assertEquals(1, consumer.getMetrics().getSucceeded());
+        Assert.assertSame(shutdown, consumer.shutdownAsync());
+    }
+}
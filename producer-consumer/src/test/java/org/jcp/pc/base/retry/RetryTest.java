@@ -0,0 +1,162 @@
+package org.jcp.pc.base.retry;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jcp.pc.base.metrics.ProcessMetrics;
+import org.jcp.pc.base.process.WorkingConsumer;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RetryTest {
+
+    @Test
+    public void testTimerWheel() throws Exception {
+        final HashedTimerWheel wheel = new HashedTimerWheel(1, TimeUnit.MILLISECONDS, 8);
+        final CountDownLatch latch = new CountDownLatch(2);
+        final long start = System.nanoTime();
+
+        // the second task needs more than one round of the wheel
+        Assert.assertTrue(wheel.schedule(latch::countDown, 5, TimeUnit.MILLISECONDS));
+        Assert.assertTrue(wheel.schedule(latch::countDown, 30, TimeUnit.MILLISECONDS));
+        Assert.assertTrue(wheel.schedule(() -> Assert.fail("Should not be executed"), 1, TimeUnit.HOURS));
+
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(30));
+
+        final List<Runnable> unprocessed = wheel.stop();
+        Assert.assertEquals(1, unprocessed.size());
+        Assert.assertFalse(wheel.schedule(latch::countDown, 1, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testBackoff() {
+        final RetryPolicy policy = new RetryPolicy(5, 10, 2.0, 50, TimeUnit.MILLISECONDS);
+
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(10), policy.delayNanos(1));
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(40), policy.delayNanos(3));
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(50), policy.delayNanos(4));
+        Assert.assertTrue(policy.canRetry(4));
+        Assert.assertFalse(policy.canRetry(5));
+    }
+
+    @Test
+    public void testRetryAndDeadLetter() {
+        final ConcurrentMap<Integer, AtomicInteger> attempts = new ConcurrentHashMap<>();
+        final ConcurrentMap<Integer, Integer> deadLetters = new ConcurrentHashMap<>();
+        final ProcessMetrics metrics = new ProcessMetrics();
+
+        final WorkingConsumer<Integer> consumer = new WorkingConsumer<Integer>(Executors.newFixedThreadPool(2), 5, metrics,
+                new RetryPolicy(3, 5, 2.0, 20, TimeUnit.MILLISECONDS), (item, cause, count) -> deadLetters.put(item, count)) {
+            @Override
+            public void process(final Integer result) {
+                // odd items never succeed, even ones succeed with the second attempt
+                if (attempts.computeIfAbsent(result, k -> new AtomicInteger()).incrementAndGet() < 2 || result % 2 == 1) {
+                    throw new IllegalStateException("Failed " + result);
+                }
+            }
+        };
+
+        for (int i = 0; i < 10; i++) {
+            consumer.accept(i);
+        }
+
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (deadLetters.size() < 5 || metrics.getSucceeded() < 5) {
+            Assert.assertTrue(System.nanoTime() < deadline);
+            Thread.yield();
+        }
+        consumer.requestShutdown();
+
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals(i % 2 == 0 ? 2 : 3, attempts.get(i).get());
+        }
+        deadLetters.values().forEach(count -> Assert.assertEquals(3, count.intValue()));
+        Assert.assertEquals(5 + 5 * 2, metrics.getRetried());
+        Assert.assertEquals(5, metrics.getDeadLettered());
+    }
+
+    @Test
+    public void testShutdownWaitsForPendingRetries() {
+        final ConcurrentMap<Integer, AtomicInteger> attempts = new ConcurrentHashMap<>();
+        final ConcurrentMap<Integer, Integer> deadLetters = new ConcurrentHashMap<>();
+        final ProcessMetrics metrics = new ProcessMetrics();
+
+        final WorkingConsumer<Integer> consumer = new WorkingConsumer<Integer>(Executors.newFixedThreadPool(2), 5, metrics,
+                new RetryPolicy(3, 50, 2.0, 100, TimeUnit.MILLISECONDS), (item, cause, count) -> deadLetters.put(item, count)) {
+            @Override
+            public void process(final Integer result) {
+                // every item succeeds with the second attempt, which is scheduled during the shutdown
+                if (attempts.computeIfAbsent(result, k -> new AtomicInteger()).incrementAndGet() < 2) {
+                    throw new IllegalStateException("Failed " + result);
+                }
+            }
+        };
+
+        for (int i = 0; i < 10; i++) {
+            consumer.accept(i);
+        }
+        consumer.requestShutdown();
+
+        Assert.assertTrue(deadLetters.isEmpty());
+        Assert.assertEquals(10, metrics.getSucceeded());
+        attempts.values().forEach(count -> Assert.assertEquals(2, count.get()));
+    }
+
+    @Test
+    public void testFailingListenerDoesNotRetryProcessedItem() {
+        final AtomicInteger attempts = new AtomicInteger();
+        final ConcurrentMap<Integer, Integer> deadLetters = new ConcurrentHashMap<>();
+        final ProcessMetrics metrics = new ProcessMetrics();
+
+        final WorkingConsumer<Integer> consumer = new WorkingConsumer<Integer>(Executors.newFixedThreadPool(2), 5, metrics,
+                new RetryPolicy(3, 5, 2.0, 20, TimeUnit.MILLISECONDS), (item, cause, count) -> deadLetters.put(item, count)) {
+            @Override
+            public void process(final Integer result) {
+                attempts.incrementAndGet();
+            }
+        };
+
+        consumer.accept(1, item -> {
+            throw new IllegalStateException("Listener failed for " + item);
+        });
+        consumer.requestShutdown();
+
+        Assert.assertEquals(1, attempts.get());
+        Assert.assertTrue(deadLetters.isEmpty());
+        Assert.assertEquals(1, metrics.getSucceeded());
+        Assert.assertEquals(0, metrics.getFailed());
+        Assert.assertEquals(0, metrics.getRetried());
+    }
+
+    @Test
+    public void testRejectedDuringShutdownKeepsQueueDepth() {
+        final ProcessMetrics metrics = new ProcessMetrics();
+        final WorkingConsumer<Integer> consumer = new WorkingConsumer<Integer>(Executors.newSingleThreadExecutor(), 5,
+                metrics) {
+            @Override
+            public void process(final Integer result) {
+                // nothing to do
+            }
+        };
+        consumer.requestShutdown();
+
+        try {
+            consumer.accept(1);
+            Assert.fail("Should be rejected");
+        } catch (final RejectedExecutionException e) {
+            // expected
+        }
+        Assert.assertEquals(1, metrics.getRejected());
+
+        // the rejection has not taken away a submission counted elsewhere
+        metrics.itemSubmitted();
+        Assert.assertEquals(1, metrics.getQueueDepth());
+    }
+}